@@ -0,0 +1,59 @@
+package edu.group20.chromflow;
+
+import edu.group20.chromflow.graph.SolverListener;
+import edu.group20.chromflow.graph.SolverPhase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the progress of a run to the console, with {@link TestApp#debug(String, Object...)} and, for the tournament,
+ * {@link TestApp#kelkOutput(String, Object...)}.
+ */
+public class ConsoleListener implements SolverListener {
+
+    private final boolean nested;
+
+    /**
+     * @param nested Whether or not the runs on the pieces of the cleaner get printed as well, otherwise only the
+     *               graph itself does.
+     */
+    public ConsoleListener(boolean nested) {
+        this.nested = nested;
+    }
+
+    @Override
+    public void onUpperBound(int depth, int upper) {
+        if(isPrinted(depth)) {
+            TestApp.debug("Upper bound >> %d%n", upper);
+            TestApp.kelkOutput("NEW BEST UPPER BOUND = %d%n", upper);
+        }
+    }
+
+    @Override
+    public void onLowerBound(int depth, int lower) {
+        if(isPrinted(depth)) {
+            TestApp.debug("Lower bound >> %d%n", lower);
+            TestApp.kelkOutput("NEW BEST LOWER BOUND = %d%n", lower);
+        }
+    }
+
+    @Override
+    public void onExact(int depth, int exact) {
+        if(isPrinted(depth)) {
+            TestApp.debug("Exact >> %d%n", exact);
+            TestApp.kelkOutput("CHROMATIC NUMBER = %d%n", exact);
+        }
+    }
+
+    @Override
+    public void onPhaseEnd(int depth, SolverPhase phase, long nanos) {
+        if(isPrinted(depth)) {
+            TestApp.debug("%s (%dms) >> Done%n", phase, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private boolean isPrinted(int depth) {
+        return depth == 0 || this.nested;
+    }
+
+}
@@ -1,132 +1,133 @@
 package edu.group20.chromflow;
 
 import edu.group20.chromflow.graph.ChromaticNumber;
-import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.CompactGraph;
 import edu.group20.chromflow.graph.GraphStructures;
-import edu.group20.chromflow.graph.Node;
+import edu.group20.chromflow.graph.InducedSubgraph;
+import edu.group20.chromflow.graph.SolverListener;
+import edu.group20.chromflow.graph.SolverPhase;
+import edu.group20.chromflow.graph.SolverSettings;
 import edu.group20.chromflow.util.Mergesort;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GraphCleaner {
 
     /**
-     * Cleans the graph by running several algorithms on it.
+     * Cleans the graph by running several algorithms on it. The graph itself is never changed, nodes are only removed
+     * from (and the graph is only split into) views of it.
      * @param graph The graph to clean.
      * @param lower Lower bound for the chromatic number.
      * @param upper Upper bound for the chromatic number.
+     * @param settings The settings of the run, they get passed on to the runs on the pieces of the graph. Every step
+     *                 gets reported to its listener.
      * @return Returns a result class that can contain the chromatic number or better boundss but this is not
      * guaranteed and heavily depends on the structure of the graph.
      */
-    public static Result clean(final Graph graph, final int depth, int lower, int upper) {
+    public static Result clean(InducedSubgraph graph, final int depth, int lower, int upper, SolverSettings settings) {
 
         if(graph.isComplete()) {
-            TestApp.debug("Cleaning (0ms) >> Detected complete graph.%n");
-            return new Result(graph.getNodes().size(), graph.getNodes().size(), graph.getNodes().size());
+            int[] colouring = emptyColouring(graph);
+            for(int i = 0; i < graph.size(); i++) {
+                colouring[graph.getVertex(i)] = i;
+            }
+            return new Result(graph.size(), graph.size(), graph.size(), null, colouring);
         }
 
-        long time = System.currentTimeMillis();
+        final InducedSubgraph original = graph;
+
+        final SolverListener listener = settings.getListener();
+        long time;
         //removing single nodes
 
         {
-            time = System.currentTimeMillis();
-            final double initial_nodes = graph.getNodes().size();
-            final double initial_density = graph.getDensity();
-            final double initial_edges = graph.getEdgeCount();
-
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.REMOVE_SINGLES);
+            final int initial_nodes = graph.size();
 
             // remove singles
-            Stack<Integer> singleNodes = graph.getNodes().keySet().stream().filter(id -> graph.getDegree(id) <= 1).collect(Collectors.toCollection(Stack::new));
-            while (!singleNodes.isEmpty()) {
-                final int fromId = singleNodes.pop();
-                final int degree = graph.getEdges(fromId).size();
-
-                if (degree == 1) {
-                    int toId = graph.getEdges(fromId).values().stream().findAny().get().getTo().getId();
-                    graph.getEdges(toId).remove(fromId);
-
-                    if (graph.getEdges(toId).size() == 1) {
-                        singleNodes.add(toId);
-                    }
-                }
-                graph.getEdges().remove(fromId);
-                graph.getNodes().remove(fromId);
-
-            }
-            TestApp.debug("Cleaning (%dms) >> Removing singles, nodes: %d (%.6f%%), edges: %d (%.6f%%), density: %.6f%% (%.6f%%) %n",
-                    (System.currentTimeMillis() - time),
-                    graph.getNodes().size(),
-                    (1D - (graph.getNodes().size() / initial_nodes)) * 100,
-                    graph.getEdgeCount(),
-                    (1D - (graph.getEdgeCount() / initial_edges)) * 100,
-                    graph.getDensity() * 100,
-                    initial_density * 100
-            );
+            graph = graph.removeSingles();
+            listener.onPhaseEnd(depth, SolverPhase.REMOVE_SINGLES, System.nanoTime() - time);
 
             //--- Tree
-            if (initial_nodes > 0 && graph.getNodes().isEmpty()) {
-                return new Result(2, 2, 2);
+            if (initial_nodes > 0 && graph.size() == 0) {
+                return new Result(2, 2, 2, null, extendOverSingles(original, emptyColouring(original)));
             }
         }
 
         //fully-connected nodes
         {
-            time = System.currentTimeMillis();
             // Check if we have at least one fully-connected node
-            if (graph.getNodes().values().stream().anyMatch(e -> graph.getDegree(e.getId()) == graph.getNodes().size() - 1)) {
+            if (findFullyConnected(graph) != -1) {
+                time = System.nanoTime();
+                listener.onPhaseStart(depth, SolverPhase.SPLIT_FULLY_CONNECTED);
 
                 // Store all subgraphs (not only leaves)
-                Stack<Graph> subgraphs = new Stack<>();
-                graph.reset();
+                Stack<InducedSubgraph> subgraphs = new Stack<>();
                 subgraphs.add(graph); // add the graph as a starting point
 
                 //Smallest actually contains leaves
-                List<Graph> smallest = new LinkedList<>();
+                List<InducedSubgraph> smallest = new LinkedList<>();
+
+                //--- a fully-connected node is adjacent to everything below it, so it gets the colour of its level and
+                // the pieces below it colour with the colours after it, pieces next to each other share colours
+                int[] colouring = emptyColouring(original);
 
                 while (!subgraphs.isEmpty()) {
-                    Graph g = subgraphs.pop();
+                    InducedSubgraph g = subgraphs.pop();
 
-                    LinkedList<Graph> _S = new LinkedList<>(); //contains subgraphs
-                    divider(_S, g);
+                    List<InducedSubgraph> _S = divider(g); //contains subgraphs
 
                     //size == -1 -> we found the smallest subgraph (leave)
                     if (_S.isEmpty()) {
                         smallest.add(g);
                     } else {
+                        colouring[g.getVertex(findFullyConnected(g))] = g.getMeta().getLevel();
                         _S.forEach(e -> e.getMeta().setLevel(g.getMeta().getLevel() + 1)); // increase the levels of the next level of subgraphs
                         subgraphs.addAll(_S); // add to look at them
                     }
                 }
 
-                int exact = Integer.MIN_VALUE;
-                Mergesort.sort(smallest, (o1, o2) -> -Integer.compare(o1.getMeta().getLevel(), o2.getMeta().getLevel()));
-                for (Graph g : smallest) {
-                    ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, depth + 1);
-                    exact = Math.max(r.getExact() + g.getMeta().getLevel(), exact);
+                //--- if a run got cancelled, its bounds still bound the chromatic number of the whole graph
+                int subLower = Integer.MIN_VALUE;
+                int subUpper = Integer.MIN_VALUE;
+                smallest = Mergesort.sort(smallest, (o1, o2) -> -Integer.compare(o1.getMeta().getLevel(), o2.getMeta().getLevel()));
+                for (InducedSubgraph g : smallest) {
+                    ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, depth + 1, settings);
+                    subLower = Math.max(r.getLower() + g.getMeta().getLevel(), subLower);
+                    subUpper = Math.max(r.getUpper() + g.getMeta().getLevel(), subUpper);
+
+                    if (colouring != null && r.getColouring() != null) {
+                        for (int i = 0; i < g.size(); i++) {
+                            colouring[g.getVertex(i)] = r.getColouring()[i] + g.getMeta().getLevel();
+                        }
+                    } else {
+                        colouring = null;
+                    }
                 }
 
-                TestApp.debug("Cleaning (%dms) >> Splitting fully-connected nodes, sub-graphs: %d %n",
-                        (System.currentTimeMillis() - time),
-                        smallest.size()
-                );
+                listener.onPhaseEnd(depth, SolverPhase.SPLIT_FULLY_CONNECTED, System.nanoTime() - time);
 
-                return new Result(exact, exact, exact);
+                return new Result(subLower, subUpper, subLower == subUpper ? subLower : -1, null,
+                        colouring == null ? null : extendOverSingles(original, colouring));
                 //return new ChromaticNumber.Result(graph, exact, exact, exact, true);
 
             }
         }
 
+        // the remaining checks need the graph in its CSR form
+        final CompactGraph compact = graph.toCompactGraph();
+
         //Wheels
         //TODO seems to be working, better qualifier required
-        if(false && graph.getNodes().size() < 1000 && lower < 4) {
-            time = System.currentTimeMillis();
-            graph.reset();
+        if(false && compact.size() < 1000 && lower < 4) {
+            int[] state = new int[compact.size()];
+            Arrays.fill(state, -1);
             int oddWheels = 0;
             int evenWheels = 0;
             boolean brokeEarly = false;
-            for(Node n : graph.getNodes().values()) {
-                final int x = GraphStructures.Test.isWheelCenter(graph, n);
+            for(int n = 0; n < compact.size(); n++) {
+                final int x = GraphStructures.Test.isWheelCenter(compact, n, state);
                 if(x > 0) {
                     if(x % 2 == 0) {
                         evenWheels++;
@@ -140,186 +141,193 @@ public class GraphCleaner {
                     break;
                 }
             }
-            TestApp.debug("Cleaning (%dms) >> Wheels, even: %s (%d), odd: %s (%d), broke early: %s%n",
-                    (System.currentTimeMillis() - time),
-                    evenWheels > 0,
-                    evenWheels,
-                    oddWheels > 0,
-                    oddWheels,
-                    brokeEarly
-            );
             if(oddWheels + evenWheels > 0) {
                 lower = Math.max(lower, evenWheels > 0 ? 4 : 3);
             }
-        } else {
-            TestApp.debugln("Cleaner >> WHEELS CHECK IS DISABLED");
         }
 
         //is k-regular
         {
-            time = System.currentTimeMillis();
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.K_REGULAR);
 
-            LinkedList<Map<Integer, Node.Edge>> values = new LinkedList<>(graph.getEdges().values());
-            int kRegular = values.get(0).size();
-            for (int i = 1; i < values.size() && kRegular != -1; i++) {
-                if(values.get(i).size() != kRegular) {
+            int kRegular = compact.getDegree(0);
+            for (int i = 1; i < compact.size() && kRegular != -1; i++) {
+                if(compact.getDegree(i) != kRegular) {
                     kRegular = -1;
                 }
             }
 
-            TestApp.debug("Cleaning (%dms) >> k-regular, k: %s%n",
-                    (System.currentTimeMillis() - time),
-                    (kRegular == -1 ? "NA" : String.valueOf(kRegular))
-            );
-
             /**
              * This segment is based on two theorems from this paper
              *  Brandes algorithm [PDF]. (n.d.). Retrieved from https://www.cl.cam.ac.uk/teaching/1617/MLRD/handbook/brandes.pdf
              *   I Theory 3.8 states that every one-connectivity and k-regular graph has k as its chromatic number
              *   II Theory 3.9 states that every two-connectivity and k-regular graph has k as its upper-bound
+             *   (Brooks' theorem, which does not hold for odd cycles, so only for k >= 3. Complete graphs got
+             *   handled above.)
              */
-            if(kRegular < upper && kRegular != -1 && GraphStructures.Test.isConnected(graph)) {
-                time = System.currentTimeMillis();
-                if(GraphStructures.Connectivity.OneConnectivity.check(graph)) {
-                    TestApp.debug("Cleaning (%dms) > k-regular, one-connectivity",
-                            (System.currentTimeMillis() - time)
-                    );
+            if(kRegular < upper && kRegular != -1 && GraphStructures.Test.isConnected(compact)) {
+                if(GraphStructures.Connectivity.OneConnectivity.check(compact)) {
+                    listener.onPhaseEnd(depth, SolverPhase.K_REGULAR, System.nanoTime() - time);
                     return new Result(kRegular, kRegular, kRegular);
-                } else if(GraphStructures.Connectivity.TwoConnectivity.check(graph)) {
+                } else if(kRegular >= 3 && GraphStructures.Connectivity.TwoConnectivity.check(compact)) {
                     upper = Math.min(upper, kRegular);
-                    TestApp.debug("Cleaning (%dms) > k-regular, two-connected%n",
-                            (System.currentTimeMillis() - time)
-                    );
                 }
             }
+            listener.onPhaseEnd(depth, SolverPhase.K_REGULAR, System.nanoTime() - time);
 
         }
 
         // disconnect graph at points
         {
-            time = System.currentTimeMillis();
-            graph.reset();
-            Set<Node> points = GraphStructures.Connectivity.Points.getArticulationPoints(graph);
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.ARTICULATION_POINTS);
+            final int[] points = GraphStructures.Connectivity.Points.getArticulationPoints(compact);
 
-            List<Graph> smallest = new LinkedList<>();
+            List<InducedSubgraph> smallest = new LinkedList<>();
 
-            if(!(points.isEmpty())) {
+            if(points.length > 0) {
 
-                graph.reset();
-                for (Node p : points) {
-                    p.setValue(1);
-                    LinkedList<Graph> subgraphs = new LinkedList<>();
-                    for (Node n : graph.getNodes().values()) {
-                        if (n.getValue() == -1) {
-                            subgraphs.add(discoverGraph(graph, n));
-                        }
-                    }
+                // split the graph at the first point that disconnects it, every part keeps a copy of the point
+                final InducedSubgraph view = InducedSubgraph.of(compact);
+                for (int p : points) {
+                    List<InducedSubgraph> subgraphs = view.split(p, true);
 
-                    if (subgraphs.size() <= 1) {
-                        p.setValue(-1);
-                    } else {
+                    if (subgraphs.size() > 1) {
                         smallest.addAll(subgraphs);
+                        break;
                     }
                 }
 
                 if(!smallest.isEmpty()) {
-                    int max = Integer.MIN_VALUE;
-                    for (Graph sub : smallest) {
-                        ChromaticNumber.Result r = ChromaticNumber.computeExact(sub, true, depth + 1);
-                        max = Math.max(max, r.getExact());
+                    int subLower = Integer.MIN_VALUE;
+                    int subUpper = Integer.MIN_VALUE;
+                    int[] colouring = emptyColouring(original);
+                    for (InducedSubgraph sub : smallest) {
+                        ChromaticNumber.Result r = ChromaticNumber.computeExact(sub, true, depth + 1, settings);
+                        subLower = Math.max(subLower, r.getLower());
+                        subUpper = Math.max(subUpper, r.getUpper());
+
+                        if (colouring != null && r.getColouring() != null) {
+                            merge(graph, sub, r.getColouring(), colouring);
+                        } else {
+                            colouring = null;
+                        }
                     }
 
-                    TestApp.debug("Cleaning (%dms) > articulation points, sub-graphs: %d, points: %d%n",
-                            (System.currentTimeMillis() - time),
-                            smallest.size(),
-                            points.size()
-                    );
-                    return new Result(max, max, max);
+                    listener.onPhaseEnd(depth, SolverPhase.ARTICULATION_POINTS, System.nanoTime() - time);
+                    return new Result(subLower, subUpper, subLower == subUpper ? subLower : -1, null,
+                            colouring == null ? null : extendOverSingles(original, colouring));
                 }
-            } else {
-                TestApp.debug("Cleaning (%dms) > articulation points, sub-graphs: 0, points: 0%n",
-                        (System.currentTimeMillis() - time),
-                        smallest.size(),
-                        points.size()
-                );
             }
+            listener.onPhaseEnd(depth, SolverPhase.ARTICULATION_POINTS, System.nanoTime() - time);
         }
 
 
-        return new Result(lower, upper, -1);
+        return new Result(lower, upper, -1, InducedSubgraph.of(compact));
     }
 
     /**
      * Tries to split the given graphs into smaller subgraphs at a fully-connected nodes.
-     * @param subgraphs The list that will contain the subgraphs of the graph.
      * @param graph The graph to divide.
-     * @return Whether or not it could be further divided.
+     * @return The subgraphs of the graph without the fully-connected node, empty if it could not be further divided.
      */
-    private static boolean divider(LinkedList<Graph> subgraphs, Graph graph) {
+    private static List<InducedSubgraph> divider(InducedSubgraph graph) {
 
-        if(graph.getNodes().size() == 1) {
-            return false;
+        if(graph.size() == 1) {
+            return Collections.emptyList();
         }
 
-        Optional<Node> nodeOptional = graph.getNodes().values().stream()
-                .filter(e -> graph.getDegree(e.getId()) == graph.getNodes().size() - 1)
-                .findAny();
-
-        if(!nodeOptional.isPresent()) return false;
-
-        // remove fully-connected node
-        Node n = nodeOptional.get();
-        graph.getNodes().remove(n.getId()); //remove the fully-connected node
-        List<Node> neighbours = graph.getNeighbours(n);
-        graph.getEdges().remove(n.getId()); //remove all the edges from fully-connected node -> B
-        // remove all the edges from B -> fully-connected node
-        neighbours.forEach(neighbour -> graph.getEdges(neighbour.getId()).remove(n.getId()));
-
-        // find subgraphs
-        final int subSize = subgraphs.size();
-        for (Node node : graph.getNodes().values()) {
-            // n.v != -1 means that it already belongs to another subgraph so we can skip it
-            if (node.getValue() != -1) continue;
-            subgraphs.add(discoverGraph(graph, node));
-        }
+        final int position = findFullyConnected(graph);
+        if(position == -1) return Collections.emptyList();
 
-        return (subgraphs.size() > subSize);
+        // remove fully-connected node and find subgraphs
+        return graph.split(graph.getVertex(position), false);
     }
 
     /**
-     * Builds a new graph by running a DFS from the origin node and marks all visited nodes with the value '0'.
-     * @param og Th original graph.
-     * @param origin The node to start at.
-     * @return The new graph builds outgoing from the origin node.
+     * @param graph The graph.
+     * @return The position of a node that is connected to all other nodes, -1 if there is none.
      */
-    public static Graph discoverGraph(Graph og, Node origin) {
-
-        // create a new graph
-        Graph newGraph = new Graph();
-        newGraph.getMeta().setLevel(og.getMeta().getLevel()); //inherit level from old graph
-
-        // DFS, nodes that we have still to visit
-        Stack<Node> visit = new Stack<>();
-        visit.add(origin); //start at the origin
+    private static int findFullyConnected(InducedSubgraph graph) {
+        for(int i = 0; i < graph.size(); i++) {
+            if(graph.getDegree(i) == graph.size() - 1) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        while (!(visit.isEmpty())) {
-            Node n = visit.pop();
-            n.setValue(0); // 0 -> means that we have visited this node
+    /**
+     * Adds the colouring of a piece that got split off at an articulation point. The pieces only share the point, so
+     * the colours of the piece get swapped so that the point keeps the colour it already has.
+     * @param graph The view the pieces got split from, their nodes are positions in it.
+     * @param piece The piece.
+     * @param pieceColouring The colouring of the piece, by the positions of its nodes.
+     * @param colouring The colouring of all nodes by their index in the parent graph of the view.
+     */
+    private static void merge(InducedSubgraph graph, InducedSubgraph piece, int[] pieceColouring, int[] colouring) {
+        int from = -1;
+        int to = -1;
+        for (int i = 0; i < piece.size(); i++) {
+            final int v = graph.getVertex(piece.getVertex(i));
+            if (colouring[v] != -1) {
+                from = pieceColouring[i];
+                to = colouring[v];
+            }
+        }
+        for (int i = 0; i < piece.size(); i++) {
+            final int colour = pieceColouring[i];
+            colouring[graph.getVertex(piece.getVertex(i))] = colour == from ? to : (colour == to ? from : colour);
+        }
+    }
 
-            newGraph.addNode(n.getId(), -1); // new graph add the node
+    /**
+     * Colours the nodes that {@link InducedSubgraph#removeSingles()} removed. They form trees that hang on the rest of
+     * the graph by at most one edge, so going through them from the coloured nodes every node has a single coloured
+     * neighbour, and two colours are enough.
+     * @param graph The view before the singles got removed.
+     * @param colouring The colouring of the remaining nodes by their index in the parent graph, -1 for the others.
+     * @return The colouring, every node of the view is coloured.
+     */
+    private static int[] extendOverSingles(InducedSubgraph graph, int[] colouring) {
+        final CompactGraph parent = graph.getParent();
+        int[] queue = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < graph.size(); i++) {
+            if (colouring[graph.getVertex(i)] != -1) {
+                queue[tail++] = graph.getVertex(i);
+            }
+        }
 
-            List<Node> neighbours = og.getNeighbours(n); //get all neighbours from the original graph
-            neighbours.forEach(neighbour -> {
-                if (!newGraph.hasNode(neighbour.getId())) { // new graph doesn't have neighbour yet so just add it to avoid errors
-                    newGraph.addNode(neighbour.getId(), -1);
+        for (int i = 0; i < graph.size(); i++) {
+            //--- a tree without any coloured node starts at any of its nodes
+            if (colouring[graph.getVertex(i)] == -1) {
+                colouring[graph.getVertex(i)] = 0;
+                queue[tail++] = graph.getVertex(i);
+            }
+            while (head < tail) {
+                final int v = queue[head++];
+                for (int j = 0; j < parent.getDegree(v); j++) {
+                    final int w = parent.getNeighbour(v, j);
+                    if (colouring[w] == -1 && graph.contains(w)) {
+                        colouring[w] = colouring[v] == 0 ? 1 : 0;
+                        queue[tail++] = w;
+                    }
                 }
-
-                newGraph.addEdge(neighbour.getId(), n.getId(), true); //add neighbour N -> neighbour, neighbour -> N
-            });
-            visit.addAll(neighbours.stream().filter(e -> e.getValue() == -1).collect(Collectors.toList())); //go to visit all its neighbours
+            }
         }
+        return colouring;
+    }
 
-        return newGraph;
+    /**
+     * @return A colouring for the parent graph of the view in which no node has a colour (-1) yet.
+     */
+    private static int[] emptyColouring(InducedSubgraph graph) {
+        int[] colouring = new int[graph.getParent().size()];
+        Arrays.fill(colouring, -1);
+        return colouring;
     }
 
     public static class Result {
@@ -328,10 +336,38 @@ public class GraphCleaner {
         private int lower = -1;
         private int upper = -1;
 
+        private InducedSubgraph graph;
+        private int[] colouring;
+
         public Result(int lower, int upper, int exact) {
+            this(lower, upper, exact, null);
+        }
+
+        public Result(int lower, int upper, int exact, InducedSubgraph graph) {
+            this(lower, upper, exact, graph, null);
+        }
+
+        public Result(int lower, int upper, int exact, InducedSubgraph graph, int[] colouring) {
             this.lower = lower;
             this.upper = upper;
             this.exact = exact;
+            this.graph = graph;
+            this.colouring = colouring;
+        }
+
+        /**
+         * @return The cleaned graph that is left to be solved, null if the cleaner did not get that far.
+         */
+        public InducedSubgraph getGraph() {
+            return graph;
+        }
+
+        /**
+         * @return The colour of every node of the cleaned graph by its index in the parent graph, it uses the exact
+         * amount of colours or the upper bound. Null if the cleaner did not colour the graph.
+         */
+        public int[] getColouring() {
+            return colouring;
         }
 
         public int getExact() {
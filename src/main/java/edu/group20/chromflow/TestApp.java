@@ -2,18 +2,20 @@ package edu.group20.chromflow;
 
 import edu.group20.chromflow.graph.ChromaticNumber;
 import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.SolverSettings;
 import edu.group20.chromflow.misc.GraphReader;
 
 public class TestApp {
 
     public final static boolean GOD_KELK_MODE = false;
     public static boolean OUTPUT_ENABLED = true;
-    public static boolean FORCE_OUTPUT = false;
 
     public static void main(String[] args) {
+        //--- ojAlgo prints a note about its hardware profile to stdout when it gets loaded, unless this is set
+        System.setProperty("shut.up.ojAlgo", "true");
         args = new String[] {"src/main/java/data/block3/block3_2018_graph15.txt"};
         Graph graph = GraphReader.parseGraph(args[0]);
-        debug("Result>> %s%n", ChromaticNumber.computeExact(graph, true, 0));
+        debug("Result>> %s%n", ChromaticNumber.computeExact(graph, true, 0, new SolverSettings().setListener(new ConsoleListener(false))));
 
     }
 
@@ -0,0 +1,194 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * An adjacency matrix that stores one bit per pair of nodes, with one {@code long[]} row per node. This allows to test
+ * an edge in O(1) and to intersect whole sets of nodes with the neighbourhood of a node 64 nodes at a time. Node sets
+ * that are used together with the matrix are bitsets of the same length as a row, indexed like the
+ * {@link CompactGraph} the matrix was built from.
+ *
+ * The matrix uses n^2 / 8 bytes, so {@link CompactGraph} only builds one for dense graphs.
+ */
+public final class AdjacencyBitset {
+
+    /**
+     * The density ({@link Graph#getDensity()}) at which {@link CompactGraph#of(Graph)} builds a matrix.
+     */
+    public final static double DENSITY_THRESHOLD = 0.1;
+
+    /**
+     * The max amount of nodes we build a matrix for (32 MB).
+     */
+    public final static int MAX_SIZE = 1 << 14;
+
+    final long[][] rows;
+    final int words;
+    private final int size;
+
+    private AdjacencyBitset(int size) {
+        this.size = size;
+        this.words = words(size);
+        this.rows = new long[size][this.words];
+    }
+
+    /**
+     * Builds the adjacency matrix of the graph.
+     * @param graph The graph.
+     * @return Never null.
+     */
+    public static AdjacencyBitset of(CompactGraph graph) {
+        AdjacencyBitset matrix = new AdjacencyBitset(graph.size());
+        for(int v = 0; v < graph.size(); v++) {
+            final long[] row = matrix.rows[v];
+            for(int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+                final int w = graph.neighbours[i];
+                row[w >>> 6] |= 1L << w;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Checks if it is worth to build a matrix for the graph.
+     * @param graph The graph.
+     * @return True, if the graph is dense enough and not too big.
+     */
+    public static boolean isSuitable(CompactGraph graph) {
+        return graph.size() <= MAX_SIZE && graph.getDensity() >= DENSITY_THRESHOLD;
+    }
+
+    /**
+     * @param size The amount of nodes.
+     * @return The amount of words a row or node set of the given size needs.
+     */
+    public static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * @return The amount of nodes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param u Index of the first node.
+     * @param v Index of the second node.
+     * @return True, if there is an edge between the two nodes.
+     */
+    public boolean hasEdge(int u, int v) {
+        return (this.rows[u][v >>> 6] & (1L << v)) != 0;
+    }
+
+    /**
+     * @param v The index of the node.
+     * @return The degree of the node.
+     */
+    public int getDegree(int v) {
+        return count(this.rows[v]);
+    }
+
+    /**
+     * Writes the intersection of the set and the neighbourhood of the node into the target.
+     * @param set The node set.
+     * @param v The index of the node.
+     * @param target The set to write into, can be the same array as set.
+     */
+    public void intersect(long[] set, int v, long[] target) {
+        final long[] row = this.rows[v];
+        for(int i = 0; i < this.words; i++) {
+            target[i] = set[i] & row[i];
+        }
+    }
+
+    /**
+     * @param set The node set.
+     * @param v The index of the node.
+     * @return The amount of neighbours of the node in the set.
+     */
+    public int countIntersection(long[] set, int v) {
+        final long[] row = this.rows[v];
+        int count = 0;
+        for(int i = 0; i < this.words; i++) {
+            count += Long.bitCount(set[i] & row[i]);
+        }
+        return count;
+    }
+
+    /**
+     * @param set The node set.
+     * @param v The index of the node.
+     * @return True, if at least one neighbour of the node is part of the set.
+     */
+    public boolean intersects(long[] set, int v) {
+        final long[] row = this.rows[v];
+        for(int i = 0; i < this.words; i++) {
+            if((set[i] & row[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //--- node sets
+
+    /**
+     * @param set The node set.
+     * @return The amount of nodes in the set.
+     */
+    public static int count(long[] set) {
+        int count = 0;
+        for(long word : set) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @param set The node set.
+     * @return True, if the set does not contain any node.
+     */
+    public static boolean isEmpty(long[] set) {
+        for(long word : set) {
+            if(word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void set(long[] set, int v) {
+        set[v >>> 6] |= 1L << v;
+    }
+
+    public static void clear(long[] set, int v) {
+        set[v >>> 6] &= ~(1L << v);
+    }
+
+    public static boolean contains(long[] set, int v) {
+        return (set[v >>> 6] & (1L << v)) != 0;
+    }
+
+    /**
+     * @param set The node set.
+     * @param from The index to start at.
+     * @return The lowest index >= from that is part of the set, or -1 if there is none.
+     */
+    public static int next(long[] set, int from) {
+        int word = from >>> 6;
+        if(word >= set.length) {
+            return -1;
+        }
+        long bits = set[word] & (-1L << from);
+        while (true) {
+            if(bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if(++word == set.length) {
+                return -1;
+            }
+            bits = set[word];
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * The order in which the {@link ExactEngine#DESCENDING} and {@link ExactEngine#SAT} engines test the amounts of colours
+ * between the lower and the upper bound. Every test is a full search, and the ones close to the chromatic number are
+ * the expensive ones, so which strategy is the fastest depends on which bound is tighter.
+ */
+public enum BoundStrategy {
+    /**
+     * Tests upper - 1, upper - 2, ... until a test fails.
+     */
+    TOP_DOWN,
+    /**
+     * Tests lower, lower + 1, ... until a test succeeds. The fastest one if the clique bound is tight.
+     */
+    BOTTOM_UP,
+    /**
+     * Binary search between the bounds.
+     */
+    BINARY,
+    /**
+     * Runs the test at the lower and the one right below the upper bound at the same time, in slices of search nodes
+     * that alternate between the two ends. A finished test moves its end, so the cheaper end decides.
+     */
+    INTERLEAVED
+}
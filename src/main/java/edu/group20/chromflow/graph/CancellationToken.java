@@ -0,0 +1,71 @@
+package edu.group20.chromflow.graph;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops a run of {@link ChromaticNumber#computeExact(Graph, boolean, int, SolverSettings)} early, either because
+ * {@link #cancel()} got called from another thread or because its time limit is up. The searches check the token
+ * every few thousand search nodes, and the run then returns the best bounds and colouring it found so far.
+ */
+public final class CancellationToken {
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled = false;
+
+    /**
+     * A token without a time limit, it only stops the run once {@link #cancel()} gets called.
+     */
+    public CancellationToken() {
+        this.deadline = 0;
+        this.hasDeadline = false;
+    }
+
+    private CancellationToken(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * @param millis The amount of milliseconds, starting now, after which the token stops the run.
+     * @return A token that can also be cancelled before its time is up.
+     */
+    public static CancellationToken withTimeLimit(long millis) {
+        return new CancellationToken(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Stops the run, the call returns right away and the run shortly afterwards.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * @return True, if the token got cancelled or its time is up.
+     */
+    public boolean isCancelled() {
+        return this.cancelled || (this.hasDeadline && System.nanoTime() - this.deadline >= 0);
+    }
+
+    /**
+     * @return The milliseconds until the time limit is up, at least 0, or {@link Long#MAX_VALUE} without a limit.
+     */
+    long getRemainingMillis() {
+        if(!this.hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(this.deadline - System.nanoTime()));
+    }
+
+    /**
+     * @throws CancellationException If the token got cancelled, its time is up or the current thread got interrupted.
+     */
+    void check() {
+        if(isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The search got cancelled.");
+        }
+    }
+
+}
@@ -1,14 +1,49 @@
 package edu.group20.chromflow.graph;
 
 import edu.group20.chromflow.GraphCleaner;
-import edu.group20.chromflow.TestApp;
 import edu.group20.chromflow.util.Mergesort;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class ChromaticNumber {
 
+    /**
+     * The orderings the descending tests of the portfolio use, each seeded with the upper bound of the mode at the same
+     * position in {@link #PORTFOLIO_SEEDS}.
+     */
+    private final static VertexOrdering[] PORTFOLIO_ORDERINGS = {
+            VertexOrdering.DEGREE_DESC, VertexOrdering.SMALLEST_LAST, VertexOrdering.NEIGHBOURS, VertexOrdering.K_SHORTEST_PATH
+    };
+    private final static UpperBoundMode[] PORTFOLIO_SEEDS = {
+            UpperBoundMode.DEGREE_DESC, UpperBoundMode.SUPERMAN, UpperBoundMode.SHUFFLE, UpperBoundMode.UNORDERED
+    };
+    /**
+     * The threads of the portfolio members, shared by all runs so the cleaner does not start new threads for every
+     * piece. Daemon threads, so a member that ignores the cancellation can not keep the application alive.
+     */
+    private final static ExecutorService PORTFOLIO_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "portfolio");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The amount of search nodes each end of the {@link BoundStrategy#INTERLEAVED} strategy gets before it is the
+     * other end's turn.
+     */
+    private final static long INTERLEAVE_SLICE = 1 << 14;
+    /**
+     * The same for the {@link ExactEngine#SAT} engine, in conflicts of the solver.
+     */
+    private final static long SAT_INTERLEAVE_SLICE = 1 << 8;
+
     /**
      * Computes the exact chromatic number for the given graph.
      * @param graph The graph to perform the computations on.
@@ -19,271 +54,644 @@ public class ChromaticNumber {
      * @return Never null, a class containing bounds and the exact chromatic number
      */
     public static Result computeExact(Graph graph, boolean clean, int depth) {
+        return computeExact(graph, clean, depth, new SolverSettings());
+    }
+
+    /**
+     * Computes the exact chromatic number for the given graph, see
+     * {@link ChromaticNumber#computeExact(Graph, boolean, int)}. If the cancellation token of the settings stops the
+     * run early, the result is not ready and contains the best bounds found so far.
+     * @param graph The graph to perform the computations on.
+     * @param clean Whether or not the graph should be cleaned.
+     * @param depth The depth of the recursion.
+     * @param settings The settings of the run.
+     * @return Never null, a class containing bounds and the exact chromatic number. If a colouring with upper colours
+     * is known, the solution is a copy of the graph with the colours (0, 1, ...) as the values of the nodes, otherwise
+     * it is the graph itself.
+     */
+    public static Result computeExact(Graph graph, boolean clean, int depth, SolverSettings settings) {
 
         if(graph.getNodes().size() == 1) {
            return new Result(graph,1, 1, 1, true);
         }
 
-        //---
-        // This can happen when GraphCleaner breaks down a fully-connected graph
-        long time = System.currentTimeMillis();
-        graph.reset();
-        int upper = upperBoundIterative(graph, UpperBoundMode.SUPERMAN);
+        final SolverListener listener = settings.getListener();
+        long time = System.nanoTime();
+        listener.onPhaseStart(depth, SolverPhase.COMPACT);
+        CompactGraph compact = graph.toCompactGraph();
+        listener.onPhaseEnd(depth, SolverPhase.COMPACT, System.nanoTime() - time);
 
-        TestApp.debug("Upper bound (%dms) >> %d%n", (System.currentTimeMillis() - time), upper);
-        TestApp.kelkOutput("NEW BEST UPPER BOUND = %d%n", upper);
+        Result result = computeExact(InducedSubgraph.of(compact), clean, depth, settings);
 
-        int lower = graph.getEdges().isEmpty() ? 1 : 2;
-        TestApp.debug("Lower bound (0ms) >> %d%n", lower);
-        TestApp.kelkOutput("NEW BEST LOWER BOUND = %d%n", lower);
+        Graph solution = graph;
+        if(result.getColouring() != null) {
+            solution = graph.clone();
+            for(int v = 0; v < compact.size(); v++) {
+                solution.getNode(compact.getId(v)).setValue(result.getColouring()[v]);
+            }
+        }
+        return new Result(solution, result.getExact(), result.getLower(), result.getUpper(), result.isReady(), result.getColouring());
+    }
 
-        if (upper == lower) {
-            TestApp.kelkOutput("CHROMATIC NUMBER = %d%n", lower);
-            TestApp.debug("<Exact Test>>> Exact: %d%n", lower);
-            return new Result(graph, upper, upper, upper, true);
-        } else if((upper > 4 || graph.getNodes().size() < 1000)) {
-            graph.reset();
-            time = System.currentTimeMillis();
-            lower = Math.max(lower, lowerBound(graph, upper));
-            TestApp.debug("Lower bound (%dms) >> %d%n", (System.currentTimeMillis() - time), lower);
-            TestApp.kelkOutput("NEW BEST LOWER BOUND = %d%n", lower);
+    /**
+     * Computes the exact chromatic number for the given view of a graph, see
+     * {@link ChromaticNumber#computeExact(Graph, boolean, int)}. The cleaner passes the pieces it cuts the graph into
+     * to this method, so they get only copied once we run the algorithms on them.
+     * @param view The view of the graph.
+     * @param clean Whether or not the graph should be cleaned.
+     * @param depth The depth of the recursion.
+     * @param settings The settings of the run.
+     * @return Never null, a class containing bounds and the exact chromatic number. The solution is always null.
+     */
+    public static Result computeExact(InducedSubgraph view, boolean clean, int depth, SolverSettings settings) {
 
+        final SolverListener listener = settings.getListener();
+        if(view.size() == 1) {
+            listener.onExact(depth, 1);
+            return new Result(null,1, 1, 1, true, new int[1]);
+        }
 
-            if (upper == lower) {
-                TestApp.kelkOutput("CHROMATIC NUMBER = %d%n", lower);
-                TestApp.debug("<Exact Test>>> Exact: %d%n", lower);
-                return new Result(graph, upper, upper, upper, true);
+        //---
+        // This can happen when GraphCleaner breaks down a fully-connected graph
+        final CompactGraph graph = view.toCompactGraph();
+        final CancellationToken token = settings.getCancellation();
+        final Bounds bounds = new Bounds(0, Integer.MAX_VALUE, listener, depth);
+        //--- the pieces the cleaner cuts the graph into share the time of the fractional bound with the whole graph
+        final CancellationToken fractionalLimit = settings.getFractionalLimit() != null ? settings.getFractionalLimit()
+                : CancellationToken.withTimeLimit(FractionalBound.TIME_LIMIT);
+
+        long time = System.nanoTime();
+        listener.onPhaseStart(depth, SolverPhase.UPPER_BOUND);
+        final int[] greedy = greedyColouring(graph, UpperBoundMode.SUPERMAN);
+        listener.onPhaseEnd(depth, SolverPhase.UPPER_BOUND, System.nanoTime() - time);
+        bounds.colourable(colourCount(greedy), greedy);
+        bounds.atLeast(graph.getEdgeCount() == 0 ? 1 : 2);
+
+        if (bounds.isExact()) {
+            return bounds.toResult(greedy);
+        }
+
+        //--- the biggest clique we know, the exact test gives its nodes different colours up front
+        int[] clique = new int[0];
+        if((bounds.upper > 4 || graph.size() < 1000)) {
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.CLIQUE);
+            clique = maxClique(graph, bounds.upper, token);
+            listener.onPhaseEnd(depth, SolverPhase.CLIQUE, System.nanoTime() - time);
+            bounds.atLeast(clique.length);
+
+            if (bounds.isExact()) {
+                return bounds.toResult(greedy);
             }
         }
 
-        // Cleaner
-        graph.reset();
-        TestApp.OUTPUT_ENABLED = depth == 0 || TestApp.FORCE_OUTPUT;
-        GraphCleaner.Result cleanResult = clean ? GraphCleaner.clean(graph, depth, lower, upper) : new GraphCleaner.Result(-1, -1, -1);
-        TestApp.OUTPUT_ENABLED = depth == 0 || TestApp.FORCE_OUTPUT;
+        //--- the fractional chromatic number, on Mycielski-like graphs it is a lot better than the clique
+        if(settings.isFractionalBound() && graph.size() <= FractionalBound.MAX_NODES && !fractionalLimit.isCancelled()) {
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.FRACTIONAL);
+            bounds.atLeast(FractionalBound.lowerBound(graph, greedy, bounds.upper, token, fractionalLimit));
+            listener.onPhaseEnd(depth, SolverPhase.FRACTIONAL, System.nanoTime() - time);
 
-        // compare with current bounds
-        lower = cleanResult.getLower() == -1 ? lower : Math.max(cleanResult.getLower(), lower);
-        upper = cleanResult.getUpper() == -1 ? upper : Math.min(cleanResult.getUpper(), upper);
+            if (bounds.isExact()) {
+                return bounds.toResult(greedy);
+            }
+        }
 
-        if(lower == upper) {
-            cleanResult = new GraphCleaner.Result(lower, upper, upper);
+        // Cleaner
+        GraphCleaner.Result cleanResult = new GraphCleaner.Result(-1, -1, -1);
+        if(clean) {
+            time = System.nanoTime();
+            listener.onPhaseStart(depth, SolverPhase.CLEANING);
+            cleanResult = GraphCleaner.clean(InducedSubgraph.of(graph), depth, bounds.lower, bounds.upper,
+                    settings.withFractionalLimit(fractionalLimit));
+            listener.onPhaseEnd(depth, SolverPhase.CLEANING, System.nanoTime() - time);
         }
 
+        // compare with current bounds, the cleaner puts the colourings of the pieces together if it split the graph
         if(cleanResult.hasExact()) {
-            TestApp.kelkOutput("NEW BEST UPPER BOUND = %d%n", cleanResult.getExact());
-            TestApp.kelkOutput("NEW BEST LOWER BOUND = %d%n", cleanResult.getExact());
-            TestApp.kelkOutput("CHROMATIC NUMBER = %d%n", cleanResult.getExact());
-            return new Result(graph, cleanResult.getExact(), cleanResult.getExact(), cleanResult.getExact(), true);
+            bounds.colourable(cleanResult.getExact(), cleanResult.getColouring());
+            bounds.atLeast(cleanResult.getExact());
+        }
+        if(cleanResult.hasUpper()) {
+            bounds.colourable(cleanResult.getUpper(), cleanResult.getColouring());
+        }
+        if(cleanResult.hasLower()) {
+            bounds.atLeast(cleanResult.getLower());
+        }
+
+        if(bounds.isExact()) {
+            return bounds.toResult(bounds.colouring);
+        }
+
+        // the cleaner might have removed nodes
+        final CompactGraph remaining = cleanResult.getGraph() == null ? graph : cleanResult.getGraph().toCompactGraph();
+        if(remaining != graph) {
+            clique = translate(graph, remaining, clique);
+            //--- the engine colours the remaining graph only, so the greedy colouring does not fit anymore
+            bounds.colouring = null;
+        }
+
+        time = System.nanoTime();
+        listener.onPhaseStart(depth, SolverPhase.SEARCH);
+        try {
+            switch (settings.getEngine()) {
+                case DESCENDING:
+                case SAT:
+                    exactTest(remaining, bounds, clique, settings.getOrdering(), settings.getStrategy(), settings.getEngine(), token);
+                    break;
+                case PORTFOLIO:
+                    portfolioTest(remaining, bounds, clique, settings);
+                    break;
+                case DSATUR:
+                default:
+                    dsaturTest(remaining, bounds, settings.getParallelism(), token);
+                    break;
+            }
+        } catch (CancellationException e) {
+            // the bounds contain what the engine found until then
+        } finally {
+            listener.onPhaseEnd(depth, SolverPhase.SEARCH, System.nanoTime() - time);
         }
 
+        //--- the colouring has to cover the whole graph, so the nodes the cleaner removed get coloured as well
+        int[] colouring = bounds.colouring;
+        if(remaining != graph) {
+            colouring = colouring == null ? null : extend(graph, remaining, colouring);
+            if(colouring == null || colourCount(colouring) > bounds.upper) {
+                colouring = colourCount(greedy) <= bounds.upper ? greedy : null;
+            }
+        }
+        return bounds.toResult(colouring);
+    }
 
-        return exactTest(graph, lower, upper);
+    /**
+     * Computes the chromatic number with {@link DsaturSearch}, which searches for the best colouring between the
+     * bounds directly instead of testing every amount of colours on its own.
+     * @param compact The graph to check.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param parallelism The amount of threads the search may use.
+     * @param token The token that stops the search early.
+     * @throws CancellationException If the token stops the search, the bounds contain what it found so far.
+     */
+    private static void dsaturTest(final CompactGraph compact, final Bounds bounds, final int parallelism, final CancellationToken token) {
+        if(parallelism > 1) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                dsatur(compact, bounds, pool, token);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            dsatur(compact, bounds, null, token);
+        }
     }
 
     /**
-     * The main method responsible for computing upper and lower bounds on the given graph and then finally testing
-     * inside the bounds for the chromatic number.
-     * @param graph The graph to check.
-     * @param lower Lower bound of the chromatic number.
-     * @param upper Upper bound of the chromatic number.
-     * @return Never null, a class containing bounds and the exact chromatic number.
+     * Runs a {@link DsaturSearch} and tightens the bounds with its result, also if it gets cancelled.
+     * @param pool The pool to run the search in, or null to run it in the calling thread.
      */
-    private static Result exactTest(Graph graph, final int lower, final int upper) {
+    private static void dsatur(final CompactGraph compact, final Bounds bounds, final ForkJoinPool pool, final CancellationToken token) {
+        final DsaturSearch search = new DsaturSearch(compact, bounds.lower, bounds.upper, pool, token);
+        try {
+            search.run();
+        } finally {
+            bounds.colourable(search.getUpper(), search.getColouring());
+        }
+        bounds.notColourable(bounds.upper - 1);
+    }
 
-        long time = System.currentTimeMillis();
-        graph.reset();
+    /**
+     * Tests inside the bounds for the chromatic number, one amount of colours at a time in the order of the strategy.
+     * @param compact The graph to check.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param ordering The order in which the nodes get coloured.
+     * @param strategy The order in which the amounts of colours get tested.
+     * @param engine The engine that runs every test, {@link ExactEngine#SAT} or the search.
+     * @param token The token that stops the tests early.
+     * @throws CancellationException If the token stops the tests, the bounds contain what they found so far.
+     */
+    private static void exactTest(final CompactGraph compact, final Bounds bounds, final int[] clique, final VertexOrdering ordering,
+                                  final BoundStrategy strategy, final ExactEngine engine, final CancellationToken token) {
 
-        //---
-        final boolean SORT_BY_DEGREE_DESC = true;
-        final boolean SORT_BY_NEIGHBOURS = false;
-        final boolean SORT_BY_K_SHORTEST_PATH = false;
-
-        LinkedList<Node> nodes = new LinkedList<>(graph.getNodes().values());
-
-        if(SORT_BY_DEGREE_DESC) {
-            time = System.currentTimeMillis();
-            nodes = Mergesort.sort(nodes, (o1, o2) -> -Integer.compare(graph.getDegree(o1.getId()), graph.getDegree(o2.getId())));
-            TestApp.debug("Sort nodes by degree (%dms) >> Done%n", (System.currentTimeMillis() - time));
-        }
-        if(SORT_BY_NEIGHBOURS) {
-            time = System.currentTimeMillis();
-            nodes = Mergesort.sort(nodes, (o1, o2) -> {
-                if(o1 == o2) return 0;
-
-                if (graph.hasEdge(o1.getId(), o2.getId())) {
-                    return -1;
-                } else {
-                    return 1;
+        long time = System.nanoTime();
+        bounds.listener.onPhaseStart(bounds.depth, SolverPhase.ORDERING);
+        final int[] order = vertexOrder(compact, ordering);
+        bounds.listener.onPhaseEnd(bounds.depth, SolverPhase.ORDERING, System.nanoTime() - time);
+
+        switch (strategy) {
+            case BOTTOM_UP:
+                ascending(compact, order, clique, bounds, engine, token);
+                break;
+            case BINARY:
+                binary(compact, order, clique, bounds, engine, token);
+                break;
+            case INTERLEAVED:
+                interleaved(compact, order, clique, bounds, engine, token);
+                break;
+            case TOP_DOWN:
+            default:
+                descending(compact, order, clique, bounds, engine, token);
+                break;
+        }
+    }
+
+    /**
+     * Tests if the graph can be coloured with upper - 1, upper - 2, ... colours until a test fails or the lower bound
+     * is reached.
+     * @param compact The graph to check.
+     * @param order The order in which the nodes get coloured.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param engine The engine that runs every test.
+     * @param token The token that stops the tests early.
+     */
+    private static void descending(final CompactGraph compact, final int[] order, final int[] clique, final Bounds bounds,
+                                   final ExactEngine engine, final CancellationToken token) {
+        while(bounds.lower < bounds.upper && exact(compact, order, clique, bounds.upper - 1, bounds, engine, token)) {
+            // every successful test lowers the upper bound
+        }
+    }
+
+    /**
+     * Tests if the graph can be coloured with lower, lower + 1, ... colours until a test succeeds or the upper bound
+     * is reached.
+     * @param compact The graph to check.
+     * @param order The order in which the nodes get coloured.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param engine The engine that runs every test.
+     * @param token The token that stops the tests early.
+     */
+    private static void ascending(final CompactGraph compact, final int[] order, final int[] clique, final Bounds bounds,
+                                   final ExactEngine engine, final CancellationToken token) {
+        while(bounds.lower < bounds.upper && !exact(compact, order, clique, bounds.lower, bounds, engine, token)) {
+            // every failed test raises the lower bound
+        }
+    }
+
+    /**
+     * Binary search for the chromatic number between the bounds.
+     * @param compact The graph to check.
+     * @param order The order in which the nodes get coloured.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param engine The engine that runs every test.
+     * @param token The token that stops the tests early.
+     */
+    private static void binary(final CompactGraph compact, final int[] order, final int[] clique, final Bounds bounds,
+                                   final ExactEngine engine, final CancellationToken token) {
+        while(bounds.lower < bounds.upper) {
+            exact(compact, order, clique, (bounds.lower + bounds.upper) >>> 1, bounds, engine, token);
+        }
+    }
+
+    /**
+     * Runs the test with lower colours and the one with upper - 1 colours side by side, each for
+     * {@link #INTERLEAVE_SLICE} search nodes (or {@link #SAT_INTERLEAVE_SLICE} conflicts) at a time. Whenever one of them finishes it moves its bound and the next
+     * test on that end starts, until the bounds meet.
+     * @param compact The graph to check.
+     * @param order The order in which the nodes get coloured.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param engine The engine that runs every test.
+     * @param token The token that stops the tests early.
+     * @throws CancellationException If the token gets cancelled or the thread gets interrupted.
+     */
+    private static void interleaved(final CompactGraph compact, final int[] order, final int[] clique, final Bounds bounds,
+                                   final ExactEngine engine, final CancellationToken token) {
+        final long slice = engine == ExactEngine.SAT ? SAT_INTERLEAVE_SLICE : INTERLEAVE_SLICE;
+        ColouringTest bottom = null;
+        ColouringTest top = null;
+
+        while(bounds.lower < bounds.upper) {
+            token.check();
+
+            //--- the lower end, a success means that the lower bound is the chromatic number
+            final int low = bounds.lower;
+            if(trivialTest(compact, low, bounds) == null) {
+                if(bottom == null) {
+                    bottom = colouringTest(engine, compact, order, clique, low);
                 }
-            });
-            TestApp.debug("Sort nodes by relation (%dms) >> Done%n", (System.currentTimeMillis() - time));
-        }
-        if(SORT_BY_K_SHORTEST_PATH) {
-            graph.reset();
-            Map<Integer, Double> score = new HashMap<>();
-            double maxScore = Double.MIN_VALUE;
-            for(Node n : graph.getNodes().values()) {
-                graph.reset();
-                Map<Integer, Integer> previous = Dijkstra.buildPaths(graph, n.getId());
-
-                for(int prev : previous.values()) {
-                    final double v = score.getOrDefault(prev, 0D) + 1;
-                    maxScore = Math.max(v, maxScore);
-                    score.put(prev, v);
+                if(bottom.step(slice)) {
+                    record(bounds, low, bottom);
                 }
             }
-            Stack<Node> stack = Mergesort.sort(nodes, (o1, o2) -> -Double.compare(score.getOrDefault(o1.getId(), 0D), score.getOrDefault(o2.getId(), 0D)))
-                    .stream().collect(Collectors.toCollection(Stack::new));
-            nodes.clear();
-            graph.reset();
-            while (!stack.isEmpty()) {
-                Node n = stack.pop();
-                if(n.getValue() != -1) continue;
-                nodes.add(n);
-                n.setValue(0);
-                for(Node.Edge e : graph.getEdges(n.getId()).values()) {
-                    if(e.getTo().getValue() == -1) {
-                        nodes.add(e.getTo());
-                        e.getTo().setValue(0);
-                    }
+            if(bounds.lower != low) {
+                bottom = null;
+                continue;
+            }
+            if(bounds.lower == bounds.upper) {
+                break;
+            }
+
+            //--- the upper end, only if it is not the same test
+            final int high = bounds.upper - 1;
+            if(high == low) {
+                continue;
+            }
+            if(trivialTest(compact, high, bounds) == null) {
+                if(top == null) {
+                    top = colouringTest(engine, compact, order, clique, high);
+                }
+                if(top.step(slice)) {
+                    record(bounds, high, top);
                 }
             }
+            if(bounds.upper != high + 1) {
+                top = null;
+            }
+        }
+    }
 
-            TestApp.debug("Sort nodes by k-shortest-path (%dms) >> Done%n", (System.currentTimeMillis() - time));
+    /**
+     * Races several ways to compute the chromatic number against each other, each in its own thread and with its own
+     * state: the DSATUR search and the descending test with every ordering in {@link #PORTFOLIO_ORDERINGS}, each
+     * seeded with the colouring of its {@link UpperBoundMode}. The first one to finish wins, and the others get
+     * cancelled. Every member always gets its own thread, the parallelism of the settings only goes to the DSATUR
+     * search.
+     * @param compact The graph to check.
+     * @param bounds The bounds of the chromatic number, they get tightened.
+     * @param clique The indices of the nodes of a clique, the descending tests give them different colours up front.
+     * @param settings The settings of the run, their token stops all members early.
+     * @throws CancellationException If the token stops the members, the bounds contain the best ones they found.
+     */
+    private static void portfolioTest(final CompactGraph compact, final Bounds bounds, final int[] clique, final SolverSettings settings) {
+        final CancellationToken token = settings.getCancellation();
+        List<Bounds> memberBounds = new ArrayList<>();
+        List<Callable<Bounds>> members = new ArrayList<>();
+
+        final Bounds dsatur = bounds.copy();
+        memberBounds.add(dsatur);
+        members.add(() -> {
+            dsaturTest(compact, dsatur, settings.getParallelism(), token);
+            return dsatur;
+        });
+        for(int i = 0; i < PORTFOLIO_ORDERINGS.length; i++) {
+            final VertexOrdering ordering = PORTFOLIO_ORDERINGS[i];
+            final UpperBoundMode seed = PORTFOLIO_SEEDS[i];
+            final Bounds member = bounds.copy();
+            memberBounds.add(member);
+            members.add(() -> {
+                final int[] seeded = greedyColouring(compact, seed);
+                member.colourable(colourCount(seeded), seeded);
+                descending(compact, vertexOrder(compact, ordering), clique, member, ExactEngine.DESCENDING, token);
+                return member;
+            });
         }
-        //---
 
-        int testValue = upper - 1;
-        Graph result = graph.clone();
+        //--- invokeAny cancels the members that are still running once it returns or throws
+        try {
+            bounds.tighten(PORTFOLIO_EXECUTOR.invokeAny(members));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The portfolio got interrupted.");
+        } catch (ExecutionException e) {
+            if(!(e.getCause() instanceof CancellationException)) {
+                throw new IllegalStateException("Every member of the portfolio failed.", e.getCause());
+            }
+            //--- every member got cancelled, so all of them are done and we can take the best of their bounds
+            for(Bounds member : memberBounds) {
+                bounds.tighten(member);
+            }
+            throw (CancellationException) e.getCause();
+        }
+    }
+
+    /**
+     * Sorts the nodes for the descending exact test.
+     * @param compact The graph.
+     * @param ordering The order.
+     * @return The indices of all nodes in the given order.
+     */
+    private static int[] vertexOrder(final CompactGraph compact, final VertexOrdering ordering) {
+        if(ordering == VertexOrdering.SMALLEST_LAST) {
+            final int[] removed = smallestLastOrder(compact);
+            int[] order = new int[removed.length];
+            for(int i = 0; i < removed.length; i++) {
+                order[i] = removed[removed.length - 1 - i];
+            }
+            return order;
+        }
+
+        LinkedList<Integer> nodes = IntStream.range(0, compact.size()).boxed().collect(Collectors.toCollection(LinkedList::new));
+
+        switch (ordering) {
+            case DEGREE_DESC:
+            case NEIGHBOURS:
+                nodes = Mergesort.sort(nodes, (o1, o2) -> -Integer.compare(compact.getDegree(o1), compact.getDegree(o2)));
+                if(ordering == VertexOrdering.DEGREE_DESC) {
+                    break;
+                }
 
-        time = System.currentTimeMillis();
-        graph.reset();
-        while(exact(graph, nodes, testValue)) {
-            TestApp.debug("Exact Test >> The graph CAN be coloured with %d colours.%n", testValue);
-            TestApp.kelkOutput("NEW BEST UPPER BOUND = %d%n", testValue);
+                nodes = Mergesort.sort(nodes, (o1, o2) -> {
+                    if(o1.equals(o2)) return 0;
 
-            if(testValue == lower) {
-                testValue--;
+                    if (compact.hasEdge(o1, o2)) {
+                        return -1;
+                    } else {
+                        return 1;
+                    }
+                });
+                break;
+
+            case K_SHORTEST_PATH: {
+                double[] score = new double[compact.size()];
+                double maxScore = Double.MIN_VALUE;
+                for(int n = 0; n < compact.size(); n++) {
+                    Dijkstra.Paths paths = Dijkstra.buildPaths(compact, n);
+
+                    for(int v = 0; v < compact.size(); v++) {
+                        final int prev = paths.getPrevious(v);
+                        if(prev == -1) continue;
+                        final double value = score[prev] + 1;
+                        maxScore = Math.max(value, maxScore);
+                        score[prev] = value;
+                    }
+                }
+                Stack<Integer> stack = Mergesort.sort(nodes, (o1, o2) -> -Double.compare(score[o1], score[o2]))
+                        .stream().collect(Collectors.toCollection(Stack::new));
+                nodes.clear();
+                boolean[] added = new boolean[compact.size()];
+                while (!stack.isEmpty()) {
+                    int n = stack.pop();
+                    if(added[n]) continue;
+                    nodes.add(n);
+                    added[n] = true;
+                    for(int i = 0; i < compact.getDegree(n); i++) {
+                        final int neighbour = compact.getNeighbour(n, i);
+                        if(!added[neighbour]) {
+                            nodes.add(neighbour);
+                            added[neighbour] = true;
+                        }
+                    }
+                }
                 break;
             }
+        }
 
-            graph.reset();
-            testValue--;
+        return nodes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Checks if the graph can be coloured with the given ammount of colours, and tightens the bounds with the answer.
+     * @param graph The graph to colour.
+     * @param order The indices of all the nodes to colour. The method respects and follows the order of this array.
+     * @param clique The indices of the nodes of a clique, they get coloured first and get different colours.
+     * @param colours The max amount of colours allowed.
+     * @param bounds The bounds of the chromatic number.
+     * @param engine The engine that runs the test.
+     * @param token The token that stops the test early.
+     * @return Whether or not the max amount of colours is sufficient to colour the graph.
+     * @throws CancellationException If the token gets cancelled or the thread gets interrupted.
+     */
+    private static boolean exact(CompactGraph graph, int[] order, int[] clique, int colours, Bounds bounds, ExactEngine engine, CancellationToken token) {
 
+        final Boolean trivial = trivialTest(graph, colours, bounds);
+        if(trivial != null) {
+            return trivial;
         }
-        final int exact = testValue+1;
 
-        TestApp.debug("Exact Test (%dms) >> Exact: %d%n", (System.currentTimeMillis() - time), exact);
-        TestApp.kelkOutput("CHROMATIC NUMBER = %d%n", exact);
+        final ColouringTest test = colouringTest(engine, graph, order, clique, colours);
+        test.run(token);
+        return record(bounds, colours, test);
+    }
 
-        return new Result(result, exact, lower, upper, true);
+    /**
+     * @param engine {@link ExactEngine#SAT} for the {@link SatColouring}, the {@link KColouringSearch} otherwise.
+     * @return The test if the graph can be coloured with the amount of colours.
+     */
+    private static ColouringTest colouringTest(ExactEngine engine, CompactGraph graph, int[] order, int[] clique, int colours) {
+        if(engine == ExactEngine.SAT) {
+            return new SatColouring(graph, order, clique, colours);
+        }
+        //--- Forward checking cuts the tree by far more than the adjacency matrix saves per step, so dense graphs use
+        // the same search.
+        return new KColouringSearch(graph, order, clique, colours);
+    }
+
+    /**
+     * Tightens the bounds with the answer of a finished test.
+     * @return Whether or not the graph can be coloured with the amount of colours of the test.
+     */
+    private static boolean record(Bounds bounds, int colours, ColouringTest search) {
+        if(search.isColourable()) {
+            //--- the search opens new colours only when it has to, so it might use less of them
+            bounds.colourable(colourCount(search.getColouring()), search.getColouring());
+            return true;
+        }
+        bounds.notColourable(colours);
+        return false;
     }
 
     /**
-     * Checks if the graph can be coloured with the given ammount of colours.
+     * Answers the cases of {@link #exact(CompactGraph, int[], int[], int, Bounds, ExactEngine, CancellationToken)} that do not
+     * need a search, and tightens the bounds with the answer.
      * @param graph The graph to colour.
-     * @param nodes All the nodes to colour. The method respects and follows the order of this list.
      * @param colours The max amount of colours allowed.
-     * @return Whether or not the max amount of colours is sufficient to colour the graph.
+     * @param bounds The bounds of the chromatic number.
+     * @return Whether or not the max amount of colours is sufficient to colour the graph, null if it needs a search.
      */
-    private static boolean exact(Graph graph, List<Node> nodes, int colours) {
+    private static Boolean trivialTest(CompactGraph graph, int colours, Bounds bounds) {
 
-        if(graph.getNodes().size() <= colours) {
+        if(graph.size() <= colours) {
+            int[] colouring = new int[graph.size()];
+            for(int v = 0; v < colouring.length; v++) {
+                colouring[v] = v;
+            }
+            bounds.colourable(colours, colouring);
             return true;
         }
 
         //--- 1
-        if(colours == 1 && graph.getEdges().isEmpty()) {
-            return true; //coloring the graph with only one colour when there is at least one edge is impossible
-        } else if(colours == 1) {
+        if(colours <= 1) {
+            //coloring the graph with only one colour when there is at least one edge is impossible
+            if(colours == 1 && graph.getEdgeCount() == 0) {
+                bounds.colourable(colours, new int[graph.size()]);
+                return true;
+            }
+            bounds.notColourable(colours);
             return false;
         }
 
         //--- 2 isBipartie
         if(colours == 2) {
-            if(nodes.size() % 2 == 0 && GraphStructures.EVBAsed.isBipartiteEigenValue(graph) /*&&graph.hasOnlyEvenCycles() */) { // TODO get Graph#hasOnlyEvenCycles
+            final int[] colouring = GraphStructures.Test.bipartition(graph);
+            if(colouring != null) {
+                bounds.colourable(colours, colouring);
                 return true;
-            } else {
-                graph.reset();
             }
+            bounds.notColourable(colours);
+            return false;
         }
 
-        //--- 3
+        return null;
+    }
 
-        //--- 4
-        if(colours == 4) {
-            //https://www.quora.com/Is-there-an-easy-method-to-determine-if-a-graph-is-planar-or-not
-            // Euler criteria for planar graphs
-            if(graph.getNodes().size() >= 3) {
-                if(graph.getEdgeCount() <= (3 * graph.getNodes().size() - 6)
-                    //graph.noCyleLength == 3 && graph.getEdges() / 2 <= 2 * graph.getNodes().size() - 4
-                ) {
-                    // check if planar
-                }
+    /**
+     * Finds the nodes of a clique of one graph in a subgraph of it.
+     * @param graph The graph the clique belongs to.
+     * @param subgraph A subgraph of the graph.
+     * @param clique The indices of the nodes of the clique in the graph.
+     * @return The indices of the nodes of the clique that are in the subgraph, which are still a clique.
+     */
+    private static int[] translate(IndexedGraph graph, IndexedGraph subgraph, int[] clique) {
+        int[] translated = new int[clique.length];
+        int size = 0;
+        for(int v : clique) {
+            final int index = subgraph.indexOf(graph.getId(v));
+            if(index != -1) {
+                translated[size++] = index;
             }
         }
-
-        // shuffle
-        //List<Node> nodes = new ArrayList<>(graph.getNodes().values());
-        //Collections.shuffle(nodes);
-
-        return exact(graph, colours, nodes.get(0), nodes, 0);
+        return Arrays.copyOf(translated, size);
     }
 
     /**
-     * Runs to check if the graph can be coloured with a certain amount of colours.
-     * @param graph The graph it has to check.
-     * @param color_nb The amount of colours.
-     * @param node The node it starts at.
-     * @return Whether or not it can be coloured in the given amount of colours.
+     * Turns a colouring of a subgraph into one of the whole graph, the nodes that are not in the subgraph get the
+     * smallest colour none of their neighbours has.
+     * @param graph The graph.
+     * @param subgraph A subgraph of the graph.
+     * @param colouring The colour of every node of the subgraph.
+     * @return The colour of every node of the graph.
      */
-    private static boolean exact(Graph graph, int color_nb, Node node, List<Node> nodes, int list_index) {
-        //--- Are all nodes coloured? If so, we are done.
-        /*if(graph.getNodes().values().stream().noneMatch(e -> e.getValue() == -1)) {
-            return true;
-        }*/
-
-        boolean sc = true;
-        for(Node n : nodes) {
-            if (n.getValue() == -1) {
-                sc = false;
-                break;
-            }
+    private static int[] extend(IndexedGraph graph, IndexedGraph subgraph, int[] colouring) {
+        final int n = graph.size();
+        int[] extended = new int[n];
+        Arrays.fill(extended, -1);
+        for(int v = 0; v < subgraph.size(); v++) {
+            extended[graph.indexOf(subgraph.getId(v))] = colouring[v];
         }
-        if(sc) return true;
 
-        //--- Check this note for all colours
-        for(int c = 1; c <= color_nb; c++) {
-            if(exactIsColourAvailable(graph, node, c)) {
-                node.setValue(c);
-
-                if(list_index + 1 >= nodes.size() || exact(graph, color_nb,  nodes.get(list_index + 1), nodes, list_index + 1)) {
-                    return true;
+        //--- used[c] == v + 1 means that colour c is used by a neighbour of v
+        int[] used = new int[graph.getMaxDegree() + colourCount(colouring) + 1];
+        for(int v = 0; v < n; v++) {
+            if(extended[v] != -1) continue;
+            for(int i = 0; i < graph.getDegree(v); i++) {
+                final int colour = extended[graph.getNeighbour(v, i)];
+                if(colour != -1) {
+                    used[colour] = v + 1;
                 }
-
-                node.setValue(-1);
             }
+            int colour = 0;
+            while (used[colour] == v + 1) {
+                colour++;
+            }
+            extended[v] = colour;
         }
-
-        return false;
+        return extended;
     }
 
     /**
-     * Check if any of the nodes neighbour already use that colour.
-     * @param graph The graph the node belongs to.
-     * @param node The node we have to check.
-     * @param colour The colour we want to use to colour this node.
-     * @return True, if the colour can be used, otherwise false.
+     * @param colouring The colour of every node, colours start at 0.
+     * @return The amount of colours the colouring uses.
      */
-    private static boolean exactIsColourAvailable(Graph graph, Node node, int colour) {
-        for(Node n : graph.getNeighbours(node)) {
-            if(n.getValue() == colour) {
-                return false;
-            }
+    private static int colourCount(int[] colouring) {
+        int max = -1;
+        for(int colour : colouring) {
+            max = Math.max(max, colour);
         }
-        return true;
-        //return graph.getEdges(node.getId()).values().stream().noneMatch(e -> e.getTo().getValue() == colour);
+        return max + 1;
     }
 
     // --- UPPER BOUND SECTION ---
@@ -293,186 +701,496 @@ public class ChromaticNumber {
      * @param graph The graph to perform the computation on.
      * @return The upper bound for the given graph.
      */
-    private static int simpleUpperBound(Graph graph) {
-        return graph.getEdges().values().stream().mapToInt(Map::size).max().getAsInt() + 1;
+    private static int simpleUpperBound(IndexedGraph graph) {
+        return graph.getMaxDegree() + 1;
+    }
+
+    /**
+     * Colours the graph with the greedy-algorithm, see {@link #greedyColouring(IndexedGraph, UpperBoundMode)}.
+     * @param graph The graph to perform the computation on.
+     * @return The upper bound, the amount of colours used to colour the graph.
+     */
+    private static int upperBoundIterative(IndexedGraph graph, UpperBoundMode upperBoundMode) {
+        return colourCount(greedyColouring(graph, upperBoundMode));
     }
 
     /**
      * Colours the graph with the greedy-algorithm. - It simply goes to every node and at every node it checks
      * if it can just reuse a colour to colour the node, or if it has to create a new colour.
      * @param graph The graph to perform the computation on.
-     * @return The upper bound, the amount of colours used to colour the graph.
+     * @return The colour (0, 1, ...) of every node.
      */
-    private static int upperBoundIterative(Graph graph, UpperBoundMode upperBoundMode) {
-        Stack<Node> unvisited = null;
-        //--- Build different unvisited maps
+    private static int[] greedyColouring(IndexedGraph graph, UpperBoundMode upperBoundMode) {
+        final int n = graph.size();
+
+        //--- The nodes get coloured from the back to the front of this array.
+        int[] unvisited = new int[n];
+        for(int v = 0; v < n; v++) {
+            unvisited[v] = v;
+        }
+
+        //--- Build different unvisited orders
         switch (upperBoundMode){
             case DEGREE_DESC:
-                //--- map ordered by degree of nodes descending
-                unvisited = graph.getNodes().values().stream()
-                        .sorted(Comparator.comparingInt(o -> -graph.getEdges(o.getId()).size()))
-                        .collect(Collectors.toCollection(Stack::new));
+                //--- ordered by degree of nodes descending
+                unvisited = Mergesort.sort(IntStream.of(unvisited).boxed().collect(Collectors.toList()),
+                        Comparator.comparingInt(o -> -graph.getDegree(o))).stream().mapToInt(Integer::intValue).toArray();
                 break;
 
             case SHUFFLE:
-                //--- map starting from random starting point
-                unvisited = graph.getNodes().values().stream().collect(Collectors.toCollection(Stack::new));
-                Collections.shuffle(unvisited);
+                //--- starting from random starting point
+                Random random = new Random();
+                for(int i = n - 1; i > 0; i--) {
+                    final int j = random.nextInt(i + 1);
+                    final int tmp = unvisited[i];
+                    unvisited[i] = unvisited[j];
+                    unvisited[j] = tmp;
+                }
                 break;
 
             case UNORDERED:
-                //--- map with order from graph
-                unvisited = graph.getNodes().values().stream().collect(Collectors.toCollection(Stack::new));
+                //--- order from graph
                 break;
 
-            //TODO verify correctness of code (passes all unit tests but you never know ¯\_(ツ)_/¯
+            //--- smallest last, the greedy colouring then uses at most degeneracy + 1 colours
             case SUPERMAN:
-                Map<Integer, Integer> degrees = new HashMap<>();
-                HashSet<Integer> removed = new HashSet<>();
-                graph.getEdges().forEach((fromId, edges) -> degrees.put(fromId, edges.size()));
-                unvisited = new Stack<>();
-                while (removed.size() < /*!=*/ graph.getNodes().size()) {
-                    int node = Integer.MAX_VALUE;
-                    for(int id : graph.getNodes().keySet()) {
-                        if(!(removed.contains(id))) {
-                            if(degrees.getOrDefault(node, Integer.MAX_VALUE) > degrees.get(id)) {
-                                node = id;
-                            }
-                        }
-                    }
-
-                    for(int neighbour : graph.getEdges(node).keySet()) {
-                        if(!(removed.contains(neighbour))) {
-                            degrees.compute(neighbour, (key, oldValue) -> oldValue -1);
-                        }
-                    }
-                    unvisited.add(graph.getNode(node));
-                    removed.add(node);
-                }
+                unvisited = smallestLastOrder(graph);
                 break;
 
         }
 
-        int max = 0;
-        while (!unvisited.isEmpty()){
-            Node node = unvisited.pop();
+        int[] colours = new int[n];
+        Arrays.fill(colours, -1);
+        //--- used[c] == step means that colour c is used by a neighbour of the node we are colouring in this step
+        int[] used = new int[graph.getMaxDegree() + 1];
+
+        for(int i = n - 1; i >= 0; i--) {
+            final int node = unvisited[i];
+            final int step = i + 1;
 
             //--- What colours does its neighbours have?
-            Collection<Node.Edge> edges = graph.getEdges(node.getId()).values();
-            List<Integer> colours = edges.stream()
-                    .filter(edge -> edge.getTo().getValue() != -1)
-                    .map(edge -> edge.getTo().getValue())
-                    .collect(Collectors.toList());
+            final int degree = graph.getDegree(node);
+            for(int j = 0; j < degree; j++) {
+                final int colour = colours[graph.getNeighbour(node, j)];
+                if(colour != -1) {
+                    used[colour] = step;
+                }
+            }
 
-            //--- No colours -> first node being visited in the graph
-            if (colours.isEmpty()) {
-                node.setValue(0);
+            //--- try to ideally find an existing colour that we can reuse
+            int colour = 0; // Lowest value we can chose for a valid colour
+            while (colour < used.length && used[colour] == step) {
+                colour++;
             }
-            //--- At least one colour -> not the first node anymore
-            else {
 
-                //--- "Highest"  value/colour adjacent to the node
-                final int maxColour = colours.stream().max(Comparator.naturalOrder()).get();
+            colours[node] = colour;
+        }
+
+        return colours;
 
-                int colour = 0; // Lowest value we can chose for a valid colour
+    }
 
-                //--- try to ideally find an existing colour that we can reuse
-                while (colour <= maxColour) {
-                    if (!colours.contains(colour)) {
-                        break;
-                    }
-                    colour++;
-                }
+    /**
+     * Computes an upper bound without building any copy of the graph, so it also works for graphs that do not fit
+     * into the heap, see {@link MappedGraph}.
+     * @param graph The graph to perform the computation on.
+     * @param upperBoundMode The order in which the nodes get coloured.
+     * @return The upper bound, the amount of colours used to colour the graph.
+     */
+    public static int upperBound(IndexedGraph graph, UpperBoundMode upperBoundMode) {
+        if(graph.size() == 0) {
+            return 0;
+        }
+        return Math.min(simpleUpperBound(graph), upperBoundIterative(graph, upperBoundMode));
+    }
 
-                node.setValue(colour);
-                max = Math.max(max, colour);
+    /**
+     * Repeatedly removes the node with the smallest remaining degree (the one with the lowest index on ties). The
+     * nodes with the smallest degree are looked up in a segment tree over the nodes, so every removal and every
+     * degree update only costs O(log n).
+     * @param graph The graph.
+     * @return The nodes in the order they got removed.
+     */
+    private static int[] smallestLastOrder(IndexedGraph graph) {
+        final int n = graph.size();
+        int[] order = new int[n];
+        int[] degrees = new int[n];
+        boolean[] removed = new boolean[n];
+        for(int v = 0; v < n; v++) {
+            degrees[v] = graph.getDegree(v);
+        }
 
-            }
+        int leaves = 1;
+        while (leaves < n) {
+            leaves <<= 1;
+        }
+        //--- tree[i] is the node with the smallest degree below i, -1 if there is none
+        int[] tree = new int[2 * leaves];
+        Arrays.fill(tree, -1);
+        for(int v = 0; v < n; v++) {
+            tree[leaves + v] = v;
+        }
+        for(int i = leaves - 1; i > 0; i--) {
+            tree[i] = smallerDegree(degrees, tree[2 * i], tree[2 * i + 1]);
+        }
 
+        for(int i = 0; i < n; i++) {
+            final int node = tree[1];
+
+            final int degree = graph.getDegree(node);
+            for(int j = 0; j < degree; j++) {
+                final int neighbour = graph.getNeighbour(node, j);
+                if(!removed[neighbour]) {
+                    degrees[neighbour]--;
+                    updateSmallestDegree(tree, degrees, leaves, neighbour);
+                }
+            }
+            order[i] = node;
+            removed[node] = true;
+            tree[leaves + node] = -1;
+            updateSmallestDegree(tree, degrees, leaves, node);
         }
+        return order;
+    }
 
-        return max + 1;
+    private static void updateSmallestDegree(int[] tree, int[] degrees, int leaves, int node) {
+        for(int i = (leaves + node) >> 1; i > 0; i >>= 1) {
+            tree[i] = smallerDegree(degrees, tree[2 * i], tree[2 * i + 1]);
+        }
+    }
 
+    private static int smallerDegree(int[] degrees, int a, int b) {
+        if(a == -1) return b;
+        if(b == -1) return a;
+        return degrees[b] < degrees[a] ? b : a;
     }
 
     //--- LOWER BOUND --
 
     /**
-     * Wrapper method for {@link ChromaticNumber#bronKerboschWithPivot(Graph, HashSet, HashSet, HashSet, int)}.
+     * Wrapper method for {@link ChromaticNumber#bronKerboschWithPivot(CompactGraph, int, int[], int, int[], int, int[], int[][], int, CancellationToken)}.
+     * The size of the clique is a lower bound for the chromatic number.
      * @param graph The graph to run the algorithm on.
      * @param upperBound A precomputed upper-bound as a break conidition.
-     * @return A lower bound for the chromatic number based on the max clique size.
+     * @param token Stops the search early, then the biggest clique found so far is returned.
+     * @return The indices of the nodes of the biggest clique in the graph.
      */
-    private static int lowerBound(Graph graph, int upperBound) {
-        return bronKerboschWithPivot(graph, new HashSet<>(), new HashSet<>(graph.getNodes().values()), new HashSet<>(), upperBound);
+    private static int[] maxClique(CompactGraph graph, int upperBound, CancellationToken token) {
+        final int n = graph.size();
+        int[] clique = new int[n];
+        int[][] maxClique = { new int[0] };
+
+        final AdjacencyBitset matrix = graph.getAdjacencyBitset();
+        if(matrix != null) {
+            long[] candidates = new long[matrix.words];
+            for(int v = 0; v < matrix.size(); v++) {
+                AdjacencyBitset.set(candidates, v);
+            }
+            try {
+                bronKerboschWithPivot(matrix, 0, candidates, new long[matrix.words], 0, clique, maxClique, upperBound, token);
+            } catch (CancellationException e) {
+                // every clique is a lower bound, so the one we have is still useful
+            }
+            return maxClique[0];
+        }
+
+        int[] candidates = new int[n];
+        for(int v = 0; v < n; v++) {
+            candidates[v] = v;
+        }
+        try {
+            bronKerboschWithPivot(graph, 0, candidates, n, new int[n], 0, clique, maxClique, upperBound, token);
+        } catch (CancellationException e) {
+            // every clique is a lower bound, so the one we have is still useful
+        }
+        return maxClique[0];
     }
 
     /**
-     * The method runs through the graph and gives back a list with all the cliques
-     * within the graph
+     * The method runs through the graph and looks at all the maximal cliques within the graph. All node sets are
+     * arrays of node indices where the candidates are sorted ascending, so they can be intersected with the (sorted)
+     * neighbours of a node by merging them.
      * @param graph the considered graph
-     * @param _R set of current Nodes in the clique
-     * @param _P set of candidate Nodes
-     * @param _X set of excluded Nodes
+     * @param r size of the current clique
+     * @param p candidate nodes, the array is owned by this call and entries get replaced by -1 once they are moved to x
+     * @param pSize the amount of candidate nodes
+     * @param x excluded nodes, has enough space to hold all the candidate nodes as well
+     * @param xSize the amount of excluded nodes
+     * @param clique the nodes of the current clique in the first r entries
+     * @param maxClique the biggest clique found so far in the first entry, it gets replaced when a bigger one is found
      * @param upperBound upperBound used as a break condition
+     * @param token gets checked once per call
      * @return The size of the biggest clique in the given graph.
      **/
-    private static int bronKerboschWithPivot(Graph graph, HashSet<Node> _R, HashSet<Node> _P, HashSet<Node> _X, final int upperBound) {
+    private static int bronKerboschWithPivot(CompactGraph graph, int r, int[] p, int pSize, int[] x, int xSize, int[] clique, int[][] maxClique, final int upperBound, final CancellationToken token) {
+        token.check();
         int max = Integer.MIN_VALUE;
-        if(_P.isEmpty() && _X.isEmpty()) {
-            max = Math.max(max, _R.size());
+        if(pSize == 0 && xSize == 0) {
+            if(r > maxClique[0].length) {
+                maxClique[0] = Arrays.copyOf(clique, r);
+            }
+            max = Math.max(max, r);
             return max;
         }
 
-        //--- pivot
-        HashSet<Node> P1 = new HashSet<>(_P); //List<Node> dR = new ArrayList<>(_R);
-        final Optional<Node> pivotA = _P.stream().max((o1, o2) -> -Integer.compare(graph.getDegree(o1.getId()), graph.getDegree(o2.getId())));
-        final Optional<Node> pivotX = _X.stream().max((o1, o2) -> -Integer.compare(graph.getDegree(o1.getId()), graph.getDegree(o2.getId())));
-
-        Node pivot = null;
-        if(pivotA.isPresent() && pivotX.isPresent()) {
-            pivot = graph.getDegree(pivotA.get().getId()) > graph.getDegree(pivotX.get().getId()) ? pivotA.get() : pivotX.get();
-        } else if(pivotA.isPresent()) {
-            pivot = pivotA.get();
-        } else if(pivotX.isPresent()) {
-            pivot = pivotX.get();
+        //--- pivot, the node with the most neighbours among the candidates
+        int pivot = -1;
+        int pivotScore = -1;
+        for(int i = 0; i < pSize + xSize; i++) {
+            final int u = i < pSize ? p[i] : x[i - pSize];
+            final int score = countNeighbours(graph, u, p, pSize);
+            if(score > pivotScore) {
+                pivot = u;
+                pivotScore = score;
+            }
         }
 
-        if(pivot != null) {
-            final Node finalPivot = pivot;
-            _P.removeIf(e -> graph.hasEdge(e.getId(), finalPivot.getId()));
+        for(int i = 0; i < pSize; i++) {
+            final int v = p[i];
+            if(v == pivot || !graph.hasEdge(v, pivot)) {
 
-            Iterator<Node> nodeIterator = _P.iterator();
-            while (nodeIterator.hasNext()) {
-                Node v = nodeIterator.next();
+                int[] nextP = new int[Math.min(pSize, graph.getDegree(v))];
+                final int nextPSize = intersect(graph, v, p, pSize, nextP);
 
-                _R.add(v);
+                int[] nextX = new int[xSize + nextPSize];
+                int nextXSize = 0;
+                for(int j = 0; j < xSize; j++) {
+                    if(graph.hasEdge(x[j], v)) {
+                        nextX[nextXSize++] = x[j];
+                    }
+                }
 
-                max = Math.max(max, bronKerboschWithPivot(
-                        graph,
-                        _R,
-                        P1.stream().filter(e -> graph.hasEdge(e.getId(), v.getId())).collect(Collectors.toCollection(HashSet::new)),
-                        _X.stream().filter(e -> graph.hasEdge(e.getId(), v.getId())).collect(Collectors.toCollection(HashSet::new)),
-                        upperBound
-                ));
+                clique[r] = v;
+                max = Math.max(max, bronKerboschWithPivot(graph, r + 1, nextP, nextPSize, nextX, nextXSize, clique, maxClique, upperBound, token));
 
                 // This works surprisingly well and cuts down run-time significantly when we get lucky :D
                 if(max == upperBound) {
                     return max;
                 }
 
-                _R.remove(v);
-                P1.remove(v);
-                _X.add(v);
-                //---
+                //--- move v from P to X
+                p[i] = -1;
+                x[xSize++] = v;
+            }
+        }
 
+        return max;
+    }
 
-                nodeIterator.remove();
-                _X.add(v);
+    /**
+     * Same as {@link ChromaticNumber#bronKerboschWithPivot(CompactGraph, int, int[], int, int[], int, int[], int[][], int, CancellationToken)} but all
+     * node sets are bitsets, and branches that cannot beat the biggest clique found so far get skipped.
+     * @param matrix the adjacency matrix of the considered graph
+     * @param r size of the current clique
+     * @param p candidate nodes, owned by this call
+     * @param x excluded nodes, owned by this call
+     * @param best size of the biggest clique found so far
+     * @param clique the nodes of the current clique in the first r entries
+     * @param maxClique the biggest clique found so far in the first entry, it gets replaced when a bigger one is found
+     * @param upperBound upperBound used as a break condition
+     * @param token gets checked once per call
+     * @return The size of the biggest clique in the given graph, or best if there is no bigger one.
+     */
+    private static int bronKerboschWithPivot(AdjacencyBitset matrix, int r, long[] p, long[] x, int best, int[] clique, int[][] maxClique, final int upperBound, final CancellationToken token) {
+        token.check();
+        final int pSize = AdjacencyBitset.count(p);
+        if(pSize == 0 && AdjacencyBitset.isEmpty(x)) {
+            if(r > best) {
+                maxClique[0] = Arrays.copyOf(clique, r);
             }
+            return Math.max(best, r);
+        }
+        if(r + pSize <= best) {
+            return best;
+        }
+
+        //--- pivot, the node with the most neighbours among the candidates
+        int pivot = -1;
+        int pivotScore = -1;
+        for(long[] set : new long[][] { p, x }) {
+            for(int u = AdjacencyBitset.next(set, 0); u != -1; u = AdjacencyBitset.next(set, u + 1)) {
+                final int score = matrix.countIntersection(p, u);
+                if(score > pivotScore) {
+                    pivot = u;
+                    pivotScore = score;
+                }
+            }
+        }
+
+        long[] candidates = p.clone();
+        final long[] pivotRow = matrix.rows[pivot];
+        for(int i = 0; i < candidates.length; i++) {
+            candidates[i] &= ~pivotRow[i];
+        }
+
+        for(int v = AdjacencyBitset.next(candidates, 0); v != -1; v = AdjacencyBitset.next(candidates, v + 1)) {
+            long[] nextP = new long[matrix.words];
+            long[] nextX = new long[matrix.words];
+            matrix.intersect(p, v, nextP);
+            matrix.intersect(x, v, nextX);
+
+            clique[r] = v;
+            best = Math.max(best, bronKerboschWithPivot(matrix, r + 1, nextP, nextX, best, clique, maxClique, upperBound, token));
+
+            if(best == upperBound) {
+                return best;
+            }
+
+            AdjacencyBitset.clear(p, v);
+            AdjacencyBitset.set(x, v);
+        }
+
+        return best;
+    }
+
+    /**
+     * Counts the neighbours of a node in the (sorted) set of nodes.
+     * @param graph The graph.
+     * @param node The node.
+     * @param set The set, removed entries are marked as -1.
+     * @param size The size of the set.
+     * @return The amount of neighbours in the set.
+     */
+    private static int countNeighbours(CompactGraph graph, int node, int[] set, int size) {
+        int count = 0;
+        int i = 0;
+        int j = graph.offsets[node];
+        final int end = graph.offsets[node + 1];
+        while (i < size && j < end) {
+            final int a = set[i];
+            final int b = graph.neighbours[j];
+            if(a < b) {
+                i++;
+            } else if(a > b) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the intersection of the (sorted) set and the neighbours of the node into the target array.
+     * @param graph The graph.
+     * @param node The node.
+     * @param set The set, removed entries are marked as -1.
+     * @param size The size of the set.
+     * @param target The array to write the intersection into, sorted ascending.
+     * @return The size of the intersection.
+     */
+    private static int intersect(CompactGraph graph, int node, int[] set, int size, int[] target) {
+        int count = 0;
+        int i = 0;
+        int j = graph.offsets[node];
+        final int end = graph.offsets[node + 1];
+        while (i < size && j < end) {
+            final int a = set[i];
+            final int b = graph.neighbours[j];
+            if(a < b) {
+                i++;
+            } else if(a > b) {
+                j++;
+            } else {
+                target[count++] = a;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The bounds of the chromatic number while an engine tightens them, and a colouring that uses upper colours. Every
+     * improvement gets reported to the listener.
+     */
+    private static final class Bounds {
+
+        int lower;
+        int upper;
+        /**
+         * Null if we do not know a colouring that uses upper colours.
+         */
+        int[] colouring = null;
+
+        final SolverListener listener;
+        final int depth;
+
+        Bounds(int lower, int upper, SolverListener listener, int depth) {
+            this.lower = lower;
+            this.upper = upper;
+            this.listener = listener;
+            this.depth = depth;
+        }
+
+        /**
+         * @return New bounds with the same values that do not report anything, e.g. for a member of the portfolio
+         * that runs in another thread.
+         */
+        Bounds copy() {
+            Bounds copy = new Bounds(this.lower, this.upper, SolverListener.NONE, this.depth);
+            copy.colouring = this.colouring;
+            return copy;
+        }
+
+        boolean isExact() {
+            return this.lower >= this.upper;
+        }
+
+        /**
+         * The graph can be coloured with the amount of colours.
+         * @param colouring A colouring that uses at most that many colours, or null.
+         */
+        void colourable(int colours, int[] colouring) {
+            if(colours < this.upper) {
+                this.upper = colours;
+                this.colouring = colouring;
+                this.listener.onUpperBound(this.depth, colours);
+            } else if(this.colouring == null && colours == this.upper) {
+                this.colouring = colouring;
+            }
+        }
+
+        /**
+         * The graph can not be coloured with the amount of colours.
+         */
+        void notColourable(int colours) {
+            atLeast(colours + 1);
+        }
+
+        /**
+         * The graph needs at least the amount of colours.
+         */
+        void atLeast(int colours) {
+            if(colours > this.lower) {
+                this.lower = colours;
+                this.listener.onLowerBound(this.depth, colours);
+            }
+        }
+
+        /**
+         * Takes over the bounds of the other ones where they are better.
+         */
+        void tighten(Bounds other) {
+            colourable(other.upper, other.colouring);
+            atLeast(other.lower);
+        }
+
+        /**
+         * Reports the chromatic number if the bounds met.
+         * @param colouring The colouring of the result.
+         * @return The result with these bounds, the solution is null.
+         */
+        Result toResult(int[] colouring) {
+            if(isExact()) {
+                this.listener.onExact(this.depth, this.upper);
+                return new Result(null, this.upper, this.upper, this.upper, true, colouring);
+            }
+            return new Result(null, -1, this.lower, this.upper, false, colouring);
         }
 
-        return max;
     }
 
     /**
@@ -488,12 +1206,19 @@ public class ChromaticNumber {
 
         private boolean isReady = false;
 
+        private int[] colouring;
+
         public Result(Graph solution, int exact, int lower, int upper, boolean isReady) {
+            this(solution, exact, lower, upper, isReady, null);
+        }
+
+        public Result(Graph solution, int exact, int lower, int upper, boolean isReady, int[] colouring) {
             this.solution = solution;
             this.exact = exact;
             this.lower = lower;
             this.upper = upper;
             this.isReady = isReady;
+            this.colouring = colouring;
         }
 
         /**
@@ -532,6 +1257,14 @@ public class ChromaticNumber {
             return upper;
         }
 
+        /**
+         * @return The colour (0, 1, ...) of every node by its index in the compact graph, it uses at most
+         * {@link #getUpper()} colours. Null if no such colouring is known.
+         */
+        public int[] getColouring() {
+            return colouring;
+        }
+
 
         @Override
         public String toString() {
@@ -0,0 +1,37 @@
+package edu.group20.chromflow.graph;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests if a graph can be coloured with a fixed amount of colours. The test can be run at once or in steps, the
+ * descending engines use it for every amount of colours they try.
+ */
+interface ColouringTest {
+
+    /**
+     * Runs the test until it is finished.
+     * @param token Gets checked every now and then.
+     * @return True, if the graph can be coloured with the amount of colours.
+     * @throws CancellationException If the token gets cancelled or the thread gets interrupted.
+     */
+    boolean run(CancellationToken token);
+
+    /**
+     * Continues the test for a limited amount of work, what a unit of work is depends on the test.
+     * @param work The maximum amount of work.
+     * @return True, if the test is finished, see {@link #isColourable()}.
+     */
+    boolean step(long work);
+
+    /**
+     * @return True, if the test is finished and found a colouring. False, if it is finished and there is none. Null,
+     * if it is not finished yet.
+     */
+    Boolean isColourable();
+
+    /**
+     * @return The colouring (colours 0, 1, ...) if the test found one.
+     */
+    int[] getColouring();
+
+}
@@ -0,0 +1,207 @@
+package edu.group20.chromflow.graph;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of a {@link Graph} in compressed sparse row (CSR) form. The nodes are re-indexed to the dense
+ * range 0..n-1 in ascending order of their ids, and the neighbours of the node with index v are stored (sorted) in
+ * {@code neighbours[offsets[v]]} up to (exclusive) {@code neighbours[offsets[v + 1]]}.
+ *
+ * The snapshot does not follow later changes of the graph it was built from, so it has to be rebuilt if the graph is
+ * modified. Dense graphs additionally get an {@link AdjacencyBitset}. Graphs that are too large for the heap can be
+ * written to a {@link MappedGraph} instead.
+ */
+public final class CompactGraph implements IndexedGraph {
+
+    /**
+     * index -> node id, ascending.
+     */
+    final int[] ids;
+    /**
+     * index -> start of the neighbours of the node in {@link #neighbours}, has n + 1 entries.
+     */
+    final int[] offsets;
+    /**
+     * The indices of all neighbours, every row is sorted ascending.
+     */
+    final int[] neighbours;
+
+    private final int maxDegree;
+    private final AdjacencyBitset matrix;
+
+    CompactGraph(int[] ids, int[] offsets, int[] neighbours) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+
+        int max = 0;
+        for(int v = 0; v < ids.length; v++) {
+            max = Math.max(max, offsets[v + 1] - offsets[v]);
+        }
+        this.maxDegree = max;
+        this.matrix = AdjacencyBitset.isSuitable(this) ? AdjacencyBitset.of(this) : null;
+    }
+
+    /**
+     * Builds the CSR snapshot of the graph. Loops (edges from a node to itself) are dropped because they have no
+     * meaning for the colouring algorithms.
+     * @param graph The graph to take the snapshot of.
+     * @return Never null.
+     */
+    public static CompactGraph of(Graph graph) {
+        final int n = graph.getNodes().size();
+
+        int[] ids = new int[n];
+        int index = 0;
+        for(int id : graph.getNodes().keySet()) {
+            ids[index++] = id;
+        }
+        Arrays.sort(ids);
+
+        int[] offsets = new int[n + 1];
+        for(int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + graph.getEdges(ids[v]).size();
+        }
+
+        int[] neighbours = new int[offsets[n]];
+        int position = 0;
+        for(int v = 0; v < n; v++) {
+            final int start = position;
+            for(Map.Entry<Integer, Node.Edge> entry : graph.getEdges(ids[v]).entrySet()) {
+                final int to = Arrays.binarySearch(ids, entry.getKey());
+                if(to != v) {
+                    neighbours[position++] = to;
+                }
+            }
+            Arrays.sort(neighbours, start, position);
+            offsets[v] = start;
+        }
+        offsets[n] = position;
+
+        return new CompactGraph(ids, offsets, position == neighbours.length ? neighbours : Arrays.copyOf(neighbours, position));
+    }
+
+    /**
+     * Copies any indexed graph, e.g. a {@link MappedGraph}, into the heap.
+     * @param graph The graph to copy.
+     * @return Never null.
+     */
+    public static CompactGraph of(IndexedGraph graph) {
+        if(graph instanceof CompactGraph) {
+            return (CompactGraph) graph;
+        }
+        final int n = graph.size();
+        if(graph.getEdgeCount() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The graph has too many edges to be copied into the heap.");
+        }
+
+        int[] ids = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] neighbours = new int[(int) graph.getEdgeCount()];
+        for(int v = 0; v < n; v++) {
+            ids[v] = graph.getId(v);
+            final int degree = graph.getDegree(v);
+            for(int i = 0; i < degree; i++) {
+                neighbours[offsets[v] + i] = graph.getNeighbour(v, i);
+            }
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        return new CompactGraph(ids, offsets, neighbours);
+    }
+
+    /**
+     * @return The amount of nodes in the graph.
+     */
+    @Override
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Counts the edges the same way as {@link Graph#getEdgeCount()} does, so every undirected edge counts twice.
+     * @return The amount of directed edges.
+     */
+    @Override
+    public long getEdgeCount() {
+        return this.neighbours.length;
+    }
+
+    /**
+     * @param index The dense index of the node.
+     * @return The id of the node in the original graph.
+     */
+    @Override
+    public int getId(int index) {
+        return this.ids[index];
+    }
+
+    /**
+     * @param id The id of the node in the original graph.
+     * @return The dense index of the node, or -1 if there is no node with the given id.
+     */
+    @Override
+    public int indexOf(int id) {
+        final int index = Arrays.binarySearch(this.ids, id);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @param v The index of the node.
+     * @return The degree of the node.
+     */
+    @Override
+    public int getDegree(int v) {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    /**
+     * @return The highest degree of any node in the graph.
+     */
+    @Override
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    /**
+     * @return The adjacency matrix of the graph, null if the graph is not dense enough to have one.
+     */
+    public AdjacencyBitset getAdjacencyBitset() {
+        return this.matrix;
+    }
+
+    /**
+     * @param v The index of the node.
+     * @param i The position in the neighbour list of the node, 0 <= i < degree.
+     * @return The index of the i-th neighbour.
+     */
+    @Override
+    public int getNeighbour(int v, int i) {
+        return this.neighbours[this.offsets[v] + i];
+    }
+
+    /**
+     * Checks if there is an edge from the first to the second node, either with the adjacency matrix or by running a
+     * binary search on the neighbours of the first node. One-directional edges are kept as they are, so the row of the
+     * first node is searched even if the second one has less neighbours.
+     * @param u Index of the first node.
+     * @param v Index of the second node.
+     * @return True, if v is a neighbour of u, otherwise false.
+     */
+    @Override
+    public boolean hasEdge(int u, int v) {
+        if(this.matrix != null) {
+            return this.matrix.hasEdge(u, v);
+        }
+        return Arrays.binarySearch(this.neighbours, this.offsets[u], this.offsets[u + 1], v) >= 0;
+    }
+
+    /**
+     * Checks if every node is connected to every other node.
+     * @return True, if every node has an edge to every other node, otherwise false.
+     */
+    public boolean isComplete() {
+        return getEdgeCount() == (long) size() * (size() - 1);
+    }
+
+}
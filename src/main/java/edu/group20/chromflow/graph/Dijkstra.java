@@ -12,35 +12,87 @@ public class Dijkstra {
      * @return A map containing information to build the paths.
      */
     public static Map<Integer, Integer> buildPaths(Graph graph, final int start) {
-
-        graph.getNodes().forEach((k, node) -> node.setValue(Integer.MAX_VALUE));
-        graph.getNode(start).setValue(0);
-
-        PriorityQueue<Node> vertices = new PriorityQueue<>(Comparator.comparingInt(Node::getValue));
-        vertices.add(graph.getNode(start));
+        final CompactGraph compact = graph.toCompactGraph();
+        final Paths paths = buildPaths(compact, compact.indexOf(start));
 
         Map<Integer, Integer> previous = new HashMap<>();
+        for(int v = 0; v < compact.size(); v++) {
+            if(paths.previous[v] != -1) {
+                previous.put(compact.getId(v), compact.getId(paths.previous[v]));
+            }
+        }
+        return previous;
+    }
 
-        while (!(vertices.isEmpty())) {
+    /**
+     * Runs the dijkstra algorithm from the start node. All the state is kept in the returned object, so this can run
+     * concurrently on the same graph. Because every edge has the same length (1), the priority queue of the algorithm
+     * degenerates to a FIFO queue.
+     * @param graph The graph to perform the computations on.
+     * @param start The index of the start node.
+     * @return Never null, the distances and previous nodes of all nodes.
+     */
+    public static Paths buildPaths(CompactGraph graph, final int start) {
+        final int n = graph.size();
+        Paths paths = new Paths(n);
+        paths.distance[start] = 0;
+
+        int[] vertices = new int[n];
+        int head = 0;
+        int tail = 0;
+        vertices[tail++] = start;
 
-            Node current = vertices.poll();
+        while (head < tail) {
 
-            Collection<Node.Edge> edges = graph.getEdges(current.getId()).values();
-            edges.forEach(edge -> {
+            final int current = vertices[head++];
+            final int distance = paths.distance[current] + 1; // 1 -> constant distance because we have an unweighted graph
 
-                Node neighbour = edge.getTo();
-                int distance = neighbour.getValue() + 1; // 1 -> constant distance because we have an unweighted graph
-                if(distance < neighbour.getValue()) {
-                    neighbour.setValue(distance);
-                    previous.put(neighbour.getId(), current.getId());
-                    vertices.add(neighbour);
+            for(int i = graph.offsets[current]; i < graph.offsets[current + 1]; i++) {
+                final int neighbour = graph.neighbours[i];
+                if(distance < paths.distance[neighbour]) {
+                    paths.distance[neighbour] = distance;
+                    paths.previous[neighbour] = current;
+                    vertices[tail++] = neighbour;
                 }
+            }
 
-            });
+        }
 
+        return paths;
+    }
+
+    /**
+     * The result of a single run, indexed like the {@link CompactGraph} it ran on.
+     */
+    public static class Paths {
+
+        private final int[] distance;
+        private final int[] previous;
+
+        private Paths(int size) {
+            this.distance = new int[size];
+            this.previous = new int[size];
+            Arrays.fill(this.distance, Integer.MAX_VALUE);
+            Arrays.fill(this.previous, -1);
+        }
+
+        /**
+         * @param v The index of the node.
+         * @return The distance from the start node, {@link Integer#MAX_VALUE} if it can not be reached.
+         */
+        public int getDistance(int v) {
+            return this.distance[v];
+        }
+
+        /**
+         * @param v The index of the node.
+         * @return The index of the previous node on the shortest path from the start node, -1 for the start node and
+         * nodes that can not be reached.
+         */
+        public int getPrevious(int v) {
+            return this.previous[v];
         }
 
-        return previous;
     }
 
 }
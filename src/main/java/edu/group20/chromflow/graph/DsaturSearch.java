@@ -0,0 +1,415 @@
+package edu.group20.chromflow.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact colouring with DSATUR branch and bound. Instead of testing one amount of colours after the other, the search
+ * minimises the amount of colours directly: it colours one node after the other, only ever opens one new colour at a
+ * time and cuts every branch that can not beat the best colouring found so far. It stops as soon as it finds a
+ * colouring that uses as many colours as the lower bound.
+ *
+ * Which node gets coloured next decides how big the search tree gets, and no rule works for every graph. Picking the
+ * node with the most different colours in its neighbourhood (the saturation) is great on most graphs, but it explodes
+ * on Mycielski-like graphs (e.g. the FullIns graphs), where colouring the nodes with the highest degree first is much
+ * faster. So the search restarts with a growing budget of search nodes and alternates between the two rules. The best
+ * colouring is kept between the restarts, so a restart never has to find it again.
+ *
+ * With a {@link ForkJoinPool} the search runs in parallel: whenever the pool runs out of queued work, the remaining
+ * colours of a node near the root are forked as tasks with their own copy of the state, and idle threads steal them.
+ * All tasks share the best colouring, so a colouring found by one task cuts the branches of all the others, and they
+ * all stop once one of them finds an optimal colouring.
+ */
+final class DsaturSearch {
+
+    /**
+     * The amount of search nodes of the first run, every pair of runs doubles it.
+     */
+    private final static long INITIAL_BUDGET = 1 << 12;
+    /**
+     * The amount of search nodes a task takes from the shared budget at once.
+     */
+    private final static long BUDGET_CHUNK = 1 << 10;
+    /**
+     * Only nodes this close to the root get split into tasks, deeper subtrees are too small to be worth a copy of
+     * the state.
+     */
+    private final static int MAX_SPLIT_DEPTH = 32;
+    /**
+     * A node only gets split if the thread has less queued tasks than this.
+     */
+    private final static int MAX_SURPLUS = 2;
+
+    private final CompactGraph graph;
+    private final int lower;
+    private final int width;
+    private final ForkJoinPool pool;
+    private final CancellationToken token;
+
+    private volatile int best;
+    private int[] bestColouring = null;
+
+    private boolean bySaturation = true;
+    private final AtomicLong budget = new AtomicLong();
+    private volatile boolean aborted;
+    /**
+     * Set once the current run has to stop, either because its budget is used up or because it found an optimal
+     * colouring.
+     */
+    private volatile boolean stop;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param graph The graph to colour.
+     * @param lower A lower bound of the chromatic number.
+     * @param upper An upper bound of the chromatic number, the search only looks for colourings with less colours.
+     * @param token Gets checked whenever the search takes more search nodes from the budget.
+     */
+    DsaturSearch(CompactGraph graph, int lower, int upper, CancellationToken token) {
+        this(graph, lower, upper, null, token);
+    }
+
+    /**
+     * @param graph The graph to colour.
+     * @param lower A lower bound of the chromatic number.
+     * @param upper An upper bound of the chromatic number, the search only looks for colourings with less colours.
+     * @param pool The pool to run the search in, or null to run it in the calling thread.
+     * @param token Gets checked whenever the search takes more search nodes from the budget.
+     */
+    DsaturSearch(CompactGraph graph, int lower, int upper, ForkJoinPool pool, CancellationToken token) {
+        this.graph = graph;
+        this.lower = lower;
+        this.best = upper;
+        this.width = Math.max(1, upper);
+        this.pool = pool;
+        this.token = token;
+    }
+
+    /**
+     * Runs the search.
+     * @return The chromatic number, if it is not smaller than the upper bound then the upper bound.
+     * @throws CancellationException If the token gets cancelled or the calling thread gets interrupted, the best
+     * colouring found so far is kept.
+     */
+    int run() {
+        long budget = INITIAL_BUDGET;
+        while (this.best > this.lower) {
+            this.budget.set(budget);
+            this.aborted = false;
+            this.stop = false;
+
+            final State root = new State();
+            if(this.pool == null) {
+                search(root, 0, 0);
+            } else {
+                this.pool.invoke(new SubtreeTask(root, 0, 0));
+            }
+
+            if(this.cancelled) {
+                throw new CancellationException("The search got cancelled.");
+            }
+
+            //--- the run searched the whole tree, so there is no better colouring
+            if(!this.aborted) {
+                break;
+            }
+
+            this.bySaturation = !this.bySaturation;
+            if(this.bySaturation) {
+                budget *= 2;
+            }
+        }
+        return this.best;
+    }
+
+    /**
+     * @return The amount of colours of the best colouring the search found so far, the upper bound if it did not find
+     * one yet.
+     */
+    int getUpper() {
+        return this.best;
+    }
+
+    /**
+     * @return The best colouring (colours 0, 1, ...) the search found, null if it did not find one that uses less
+     * colours than the upper bound.
+     */
+    synchronized int[] getColouring() {
+        return this.bestColouring;
+    }
+
+    /**
+     * Searches the subtree below a state. It does not recurse, the node and the next colour to try of every depth are
+     * kept in stacks in the state, so deep trees do not overflow the call stack.
+     * @param state The state of the search, it is only used by the current thread.
+     * @param coloured The amount of nodes that are coloured.
+     * @param used The amount of colours that are used.
+     */
+    private void search(State state, int coloured, int used) {
+        final int root = coloured;
+        state.used[root] = used;
+        if(!enter(state, root)) {
+            return;
+        }
+
+        List<SubtreeTask> forked = null;
+        int depth = root;
+        while (depth >= root) {
+            final int node = state.nodes[depth];
+            if(state.colouring[node] != -1) {
+                state.unassign(node, state.colouring[node]);
+            }
+
+            //--- a new colour is only worth it if we still use less colours than the best colouring afterwards
+            final int base = node * this.width;
+            final int limit = Math.min(state.used[depth] + 1, this.best - 1);
+            int c = state.next[depth];
+            while (c < limit && state.counts[base + c] != 0) {
+                c++;
+            }
+            if(c >= limit || this.stop) {
+                depth--;
+                continue;
+            }
+            state.next[depth] = c + 1;
+
+            final int nextUsed = Math.max(state.used[depth], c + 1);
+            if(shouldSplit(depth)) {
+                final State copy = new State(state);
+                copy.assign(node, c);
+                final SubtreeTask task = new SubtreeTask(copy, depth + 1, nextUsed);
+                task.fork();
+                if(forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(task);
+            } else {
+                state.assign(node, c);
+                state.used[depth + 1] = nextUsed;
+                if(enter(state, depth + 1)) {
+                    depth++;
+                }
+            }
+        }
+
+        if(forked != null) {
+            for(SubtreeTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * Visits the search node at the depth: stores the colouring if all nodes are coloured, otherwise picks the node
+     * to colour next.
+     * @return True, if the colours of the picked node have to be tried, false if the search node is done.
+     */
+    private boolean enter(State state, int depth) {
+        //--- the nodes above us might already use as many colours as a colouring that was found further down
+        final int used = state.used[depth];
+        if(this.stop || used >= this.best) {
+            return false;
+        }
+
+        if(depth == state.colouring.length) {
+            improve(state, used);
+            return false;
+        }
+
+        if(--state.budget < 0 && !take(state)) {
+            return false;
+        }
+
+        state.nodes[depth] = select(state);
+        state.next[depth] = 0;
+        return true;
+    }
+
+    /**
+     * @return True, if the colours of a node at this depth should be forked as tasks.
+     */
+    private boolean shouldSplit(int coloured) {
+        return this.pool != null && coloured < MAX_SPLIT_DEPTH && ForkJoinTask.inForkJoinPool() &&
+                ForkJoinTask.getSurplusQueuedTaskCount() < MAX_SURPLUS;
+    }
+
+    /**
+     * Takes the next chunk of search nodes from the shared budget.
+     * @return False, if the budget is used up or the search got cancelled.
+     */
+    private boolean take(State state) {
+        if(this.token.isCancelled() || (this.pool == null && Thread.currentThread().isInterrupted())) {
+            this.cancelled = true;
+            this.stop = true;
+            return false;
+        }
+        if(this.budget.getAndAdd(-BUDGET_CHUNK) <= 0) {
+            this.aborted = true;
+            this.stop = true;
+            return false;
+        }
+        state.budget = BUDGET_CHUNK;
+        return true;
+    }
+
+    /**
+     * Stores the colouring of the state if it is better than the best one.
+     */
+    private synchronized void improve(State state, int used) {
+        if(used < this.best) {
+            this.best = used;
+            this.bestColouring = state.colouring.clone();
+            if(used <= this.lower) {
+                this.stop = true;
+            }
+        }
+    }
+
+    /**
+     * Picks the next node to colour. By saturation it is the uncoloured node with the highest saturation, on ties the
+     * one with the most uncoloured neighbours. Otherwise it is the node with the highest degree, unless there are
+     * nodes that have at most one colour left, then it is the one of them with the highest saturation.
+     * @return The index of the node.
+     */
+    private int select(State state) {
+        final int forced = this.best - 2;
+        final int[] saturation = state.saturation;
+
+        int node = -1;
+        for(int v = 0; v < state.colouring.length; v++) {
+            if(state.colouring[v] != -1) continue;
+
+            if(node == -1) {
+                node = v;
+            } else if(this.bySaturation) {
+                if(saturation[v] > saturation[node] || (saturation[v] == saturation[node] &&
+                        state.uncolouredDegree[v] > state.uncolouredDegree[node])) {
+                    node = v;
+                }
+            } else {
+                final boolean isForced = saturation[v] >= forced;
+                final boolean wasForced = saturation[node] >= forced;
+                if(isForced != wasForced) {
+                    if(isForced) {
+                        node = v;
+                    }
+                } else if(isForced && saturation[v] != saturation[node]) {
+                    if(saturation[v] > saturation[node]) {
+                        node = v;
+                    }
+                } else if(this.graph.getDegree(v) > this.graph.getDegree(node)) {
+                    node = v;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * The part of the search that changes while going down the tree, every task has its own.
+     */
+    private final class State {
+
+        /**
+         * The colour of every node, -1 if it is not coloured yet.
+         */
+        final int[] colouring;
+        /**
+         * counts[v * width + c] is the amount of neighbours of v with the colour c.
+         */
+        final int[] counts;
+        final int[] saturation;
+        final int[] uncolouredDegree;
+
+        /**
+         * The stack of the search: for every depth the node that gets coloured there, the next colour to try for it
+         * and the amount of colours used above it.
+         */
+        final int[] nodes;
+        final int[] next;
+        final int[] used;
+
+        /**
+         * The search nodes this state may still visit before it has to take more from the shared budget.
+         */
+        long budget = 0;
+
+        State() {
+            final int n = graph.size();
+            this.colouring = new int[n];
+            this.counts = new int[n * width];
+            this.saturation = new int[n];
+            this.uncolouredDegree = new int[n];
+            for(int v = 0; v < n; v++) {
+                this.colouring[v] = -1;
+                this.uncolouredDegree[v] = graph.getDegree(v);
+            }
+            this.nodes = new int[n];
+            this.next = new int[n];
+            this.used = new int[n + 1];
+        }
+
+        State(State other) {
+            this.colouring = other.colouring.clone();
+            this.counts = other.counts.clone();
+            this.saturation = other.saturation.clone();
+            this.uncolouredDegree = other.uncolouredDegree.clone();
+            this.nodes = new int[this.colouring.length];
+            this.next = new int[this.colouring.length];
+            this.used = new int[this.colouring.length + 1];
+        }
+
+        void assign(int node, int colour) {
+            this.colouring[node] = colour;
+            for(int i = graph.offsets[node]; i < graph.offsets[node + 1]; i++) {
+                final int neighbour = graph.neighbours[i];
+                this.uncolouredDegree[neighbour]--;
+                if(this.counts[neighbour * width + colour]++ == 0) {
+                    this.saturation[neighbour]++;
+                }
+            }
+        }
+
+        void unassign(int node, int colour) {
+            this.colouring[node] = -1;
+            for(int i = graph.offsets[node]; i < graph.offsets[node + 1]; i++) {
+                final int neighbour = graph.neighbours[i];
+                this.uncolouredDegree[neighbour]++;
+                if(--this.counts[neighbour * width + colour] == 0) {
+                    this.saturation[neighbour]--;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Searches the subtree below a state.
+     */
+    private final class SubtreeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final State state;
+        private final int coloured;
+        private final int used;
+
+        SubtreeTask(State state, int coloured, int used) {
+            this.state = state;
+            this.coloured = coloured;
+            this.used = used;
+        }
+
+        @Override
+        protected void compute() {
+            search(this.state, this.coloured, this.used);
+        }
+
+    }
+
+}
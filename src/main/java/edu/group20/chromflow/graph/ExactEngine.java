@@ -0,0 +1,26 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * The algorithms that can compute the chromatic number once the bounds and the cleaner could not find it.
+ */
+public enum ExactEngine {
+    /**
+     * DSATUR branch and bound, minimises the amount of colours in a single search.
+     */
+    DSATUR,
+    /**
+     * Tests if the graph can be coloured with single amounts of colours, by default upper - 1, upper - 2, ... until a
+     * test fails, see {@link BoundStrategy}.
+     */
+    DESCENDING,
+    /**
+     * Like {@link #DESCENDING}, but every test gets encoded as a SAT problem and solved with clause learning, see
+     * {@link SatSolver}. Usually faster on hard graphs, where the search keeps running into the same conflicts.
+     */
+    SAT,
+    /**
+     * Runs DSATUR and the descending test with several orderings at the same time, each in its own thread, and takes
+     * the first result. The parallelism of the {@link SolverSettings} only goes to the DSATUR search.
+     */
+    PORTFOLIO
+}
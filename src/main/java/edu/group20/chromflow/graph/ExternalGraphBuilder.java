@@ -0,0 +1,318 @@
+package edu.group20.chromflow.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds a {@link MappedGraph} file from more edges than fit into the heap. Like the {@link GraphBuilder} it collects
+ * the edges in a primitive buffer, but whenever the buffer is full it gets sorted, deduplicated and written to a
+ * temporary run file. Building merges the runs in passes of at most {@link #MERGE_FAN_IN} runs until they fit into a
+ * single merge, which writes the final file. So only the buffer, the id and the degree of every node and at most
+ * {@link #MERGE_FAN_IN} read buffers are kept in the heap, and at most that many files are open at once.
+ */
+public class ExternalGraphBuilder implements Closeable {
+
+    private final static int IO_BUFFER_SIZE = 1 << 16;
+    /**
+     * The maximum amount of runs that get merged at once.
+     */
+    private final static int MERGE_FAN_IN = 64;
+
+    private final Path directory;
+
+    /**
+     * Both directions of every edge, packed like in the {@link GraphBuilder}. A node without edges is stored as a
+     * loop, which never is a real edge.
+     */
+    private final long[] buffer;
+    private int size = 0;
+
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * @param directory The directory for the temporary files.
+     * @param maxEdgesInMemory The amount of edges to collect before they get written to a run file, every edge takes
+     *                         16 bytes.
+     */
+    public ExternalGraphBuilder(Path directory, int maxEdgesInMemory) {
+        this.directory = directory;
+        this.buffer = new long[2 * Math.max(1, maxEdgesInMemory)];
+    }
+
+    /**
+     * Adds a node, even if it does not have any edges.
+     * @param id The id of the node.
+     * @return this
+     * @throws IOException If a run file can not be written.
+     */
+    public ExternalGraphBuilder addNode(int id) throws IOException {
+        add(GraphBuilder.pack(id, id));
+        return this;
+    }
+
+    /**
+     * Adds an undirected edge, a loop only adds its node.
+     * @param from The id of the first node.
+     * @param to The id of the second node.
+     * @return this
+     * @throws IOException If a run file can not be written.
+     */
+    public ExternalGraphBuilder addEdge(int from, int to) throws IOException {
+        if(from == to) {
+            return addNode(from);
+        }
+        add(GraphBuilder.pack(from, to));
+        add(GraphBuilder.pack(to, from));
+        return this;
+    }
+
+    private void add(long edge) throws IOException {
+        if(this.size == this.buffer.length) {
+            flush();
+        }
+        this.buffer[this.size++] = edge;
+    }
+
+    /**
+     * Sorts the buffer, drops the duplicates and writes it into a new run file.
+     * @throws IOException
+     */
+    private void flush() throws IOException {
+        if(this.size == 0) {
+            return;
+        }
+        Arrays.parallelSort(this.buffer, 0, this.size);
+
+        Files.createDirectories(this.directory);
+        final Path run = Files.createTempFile(this.directory, "run", ".tmp");
+        this.runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+            for(int i = 0; i < this.size; i++) {
+                if(i == 0 || this.buffer[i - 1] != this.buffer[i]) {
+                    out.writeLong(this.buffer[i]);
+                }
+            }
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Writes the graph into a file that can be opened with {@link MappedGraph#open(Path)}, and deletes the temporary
+     * files. The builder is empty afterwards.
+     * @param output The file, it gets replaced if it already exists.
+     * @throws IOException If a file can not be read or written.
+     */
+    public void build(Path output) throws IOException {
+        flush();
+
+        //--- Merge the runs. The merged edges are sorted by (from, to), so they are the rows of the graph in the
+        // right order, but they still contain the ids of the neighbours and not their indices, because we only know
+        // all the ids at the end. So the neighbours go into a temporary file first.
+        int[] ids = new int[1024];
+        int[] degrees = new int[1024];
+        int n = 0;
+        long edgeCount = 0;
+
+        Path rows = null;
+        try {
+            while (this.runs.size() > MERGE_FAN_IN) {
+                mergePass();
+            }
+
+            rows = Files.createTempFile(this.directory, "rows", ".tmp");
+            try (Merger merger = new Merger(this.runs);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rows), IO_BUFFER_SIZE))) {
+                long previous = 0;
+                boolean first = true;
+                while (merger.hasNext()) {
+                    final long edge = merger.next();
+                    if(!first && edge == previous) continue;
+                    first = false;
+                    previous = edge;
+
+                    final int from = GraphBuilder.from(edge);
+                    if(n == 0 || ids[n - 1] != from) {
+                        if(n == ids.length) {
+                            ids = Arrays.copyOf(ids, n * 2);
+                            degrees = Arrays.copyOf(degrees, n * 2);
+                        }
+                        ids[n++] = from;
+                    }
+
+                    final int to = GraphBuilder.to(edge);
+                    if(to != from) {
+                        degrees[n - 1]++;
+                        edgeCount++;
+                        out.writeInt(to);
+                    }
+                }
+            }
+
+            int maxDegree = 0;
+            for(int v = 0; v < n; v++) {
+                maxDegree = Math.max(maxDegree, degrees[v]);
+            }
+
+            //--- Write the final file, the ids of the neighbours get translated on the way.
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(rows), IO_BUFFER_SIZE));
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), IO_BUFFER_SIZE))) {
+                long position = MappedGraph.writeHeader(out, n, maxDegree, edgeCount, false);
+
+                for(int v = 0; v < n; v++) {
+                    out.writeInt(ids[v]);
+                }
+                position = MappedGraph.pad(out, position + 4L * n);
+
+                long offset = 0;
+                out.writeLong(offset);
+                for(int v = 0; v < n; v++) {
+                    offset += degrees[v];
+                    out.writeLong(offset);
+                }
+                MappedGraph.pad(out, position + 8L * (n + 1));
+
+                for(long i = 0; i < edgeCount; i++) {
+                    out.writeInt(Arrays.binarySearch(ids, 0, n, in.readInt()));
+                }
+            }
+        } finally {
+            if(rows != null) {
+                Files.deleteIfExists(rows);
+            }
+            close();
+        }
+    }
+
+    /**
+     * Merges every {@link #MERGE_FAN_IN} runs into a single run, without the duplicates.
+     * @throws IOException If a run can not be read or written.
+     */
+    private void mergePass() throws IOException {
+        final List<Path> merged = new ArrayList<>();
+        try {
+            for(int start = 0; start < this.runs.size(); start += MERGE_FAN_IN) {
+                final List<Path> group = this.runs.subList(start, Math.min(start + MERGE_FAN_IN, this.runs.size()));
+                final Path run = Files.createTempFile(this.directory, "run", ".tmp");
+                merged.add(run);
+                try (Merger merger = new Merger(group);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+                    long previous = 0;
+                    boolean first = true;
+                    while (merger.hasNext()) {
+                        final long edge = merger.next();
+                        if(first || edge != previous) {
+                            out.writeLong(edge);
+                        }
+                        first = false;
+                        previous = edge;
+                    }
+                }
+            }
+        } finally {
+            //--- the old runs go either way, if the pass failed the new ones get deleted with them by close()
+            for(Path run : this.runs) {
+                Files.deleteIfExists(run);
+            }
+            this.runs.clear();
+            this.runs.addAll(merged);
+        }
+    }
+
+    /**
+     * Deletes the temporary files, the edges that were added are lost.
+     * @throws IOException If a file can not be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        for(Path run : this.runs) {
+            Files.deleteIfExists(run);
+        }
+        this.runs.clear();
+        this.size = 0;
+    }
+
+    /**
+     * Merges the sorted runs.
+     */
+    private static class Merger implements Closeable {
+
+        private final List<DataInputStream> inputs = new ArrayList<>();
+        /**
+         * The current edge of every run that is not empty yet, and the index of the run: {edge, run}.
+         */
+        private final PriorityQueue<long[]> heads = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+        Merger(List<Path> runs) throws IOException {
+            try {
+                for(Path run : runs) {
+                    this.inputs.add(new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE)));
+                    advance(new long[] { 0, this.inputs.size() - 1 });
+                }
+            } catch (IOException | RuntimeException e) {
+                //--- the caller only closes what got constructed
+                try {
+                    close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+
+        boolean hasNext() {
+            return !this.heads.isEmpty();
+        }
+
+        long next() throws IOException {
+            long[] head = this.heads.poll();
+            final long edge = head[0];
+            advance(head);
+            return edge;
+        }
+
+        private void advance(long[] head) throws IOException {
+            try {
+                head[0] = this.inputs.get((int) head[1]).readLong();
+                this.heads.add(head);
+            } catch (EOFException e) {
+                // the run is empty
+            }
+        }
+
+        /**
+         * Closes all runs, also if closing one of them fails.
+         * @throws IOException The first exception, the others are suppressed by it.
+         */
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+            for(DataInputStream input : this.inputs) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    if(exception == null) {
+                        exception = e;
+                    } else {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+            this.inputs.clear();
+            if(exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+}
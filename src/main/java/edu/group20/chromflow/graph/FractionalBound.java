@@ -0,0 +1,375 @@
+package edu.group20.chromflow.graph;
+
+import org.ojalgo.optimisation.Expression;
+import org.ojalgo.optimisation.ExpressionsBasedModel;
+import org.ojalgo.optimisation.Optimisation;
+import org.ojalgo.optimisation.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * Lower bound from the fractional chromatic number. A colouring is a set of independent sets that covers every node,
+ * and the fractional chromatic number is the optimum of the LP relaxation of that cover: min sum x_S, such that the
+ * independent sets S that contain a node have a total weight of at least 1 for every node. There are exponentially
+ * many independent sets, so the LP starts with the colour classes of a colouring and only gets the independent sets
+ * (columns) that can improve it (column generation). Its dual gives every node a weight y_v, and an independent set
+ * improves the LP if its nodes weigh more than 1 (pricing), so we look for heavy independent sets, first greedily and
+ * only if that fails with a branch and bound that is exact within its budget.
+ *
+ * We solve the dual (max sum y_v, such that every independent set of the LP weighs at most 1) with ojalgo, so adding
+ * a column to the LP is adding a constraint to the dual. For any weights y the sum of the weights divided by the
+ * weight of the heaviest independent set is a lower bound (Farley), so the bound is valid after every iteration, even
+ * if the LP is not solved to the end or not solved exactly.
+ */
+final class FractionalBound {
+
+    /**
+     * Bigger graphs get no fractional bound, the LP gets too slow.
+     */
+    final static int MAX_NODES = 300;
+    private final static int MAX_ITERATIONS = 100;
+    /**
+     * The time in milliseconds ojalgo gets for a single LP, its simplex can stall on the degenerate LPs of bigger
+     * graphs.
+     */
+    private final static long LP_TIME_LIMIT = 1000;
+    /**
+     * The time in milliseconds for the bound in a whole run, the pieces of the graph share it with the graph, see
+     * {@link SolverSettings#withFractionalLimit(CancellationToken)}.
+     */
+    final static long TIME_LIMIT = 2000;
+    /**
+     * The amount of independent sets the greedy pricing tries per iteration, starting at the heaviest nodes.
+     */
+    private final static int GREEDY_STARTS = 32;
+    /**
+     * The amount of search nodes of the exact pricing.
+     */
+    private final static long PRICING_BUDGET = 1 << 16;
+    /**
+     * The exact pricing checks the tokens every this many search nodes.
+     */
+    private final static long CANCELLATION_CHECK = 1 << 10;
+    /**
+     * An independent set is only added if it violates the dual by at least this much, smaller violations are noise of
+     * the LP solver.
+     */
+    private final static double VIOLATION = 1e-4;
+    private final static double EPSILON = 1e-7;
+
+    private final CompactGraph graph;
+    private final AdjacencyBitset matrix;
+    private final List<int[]> columns = new ArrayList<>();
+    private final CancellationToken token;
+    private final CancellationToken limit;
+
+    private FractionalBound(CompactGraph graph, int[] colouring, CancellationToken token, CancellationToken limit) {
+        this.graph = graph;
+        this.matrix = AdjacencyBitset.of(graph);
+        this.token = token;
+        this.limit = limit;
+
+        //--- the colour classes cover all nodes, so the LP has a solution from the start
+        int colours = 0;
+        for(int colour : colouring) {
+            colours = Math.max(colours, colour + 1);
+        }
+        int[] sizes = new int[colours];
+        for(int colour : colouring) {
+            sizes[colour]++;
+        }
+        int[][] classes = new int[colours][];
+        for(int c = 0; c < colours; c++) {
+            classes[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for(int v = 0; v < colouring.length; v++) {
+            classes[colouring[v]][sizes[colouring[v]]++] = v;
+        }
+        this.columns.addAll(Arrays.asList(classes));
+    }
+
+    /**
+     * Computes the lower bound. If one of the tokens stops it early, it returns the best bound it found until then.
+     * @param graph The graph, with at most {@link #MAX_NODES} nodes.
+     * @param colouring A colouring of the graph (colours 0, 1, ...), its colour classes are the first columns.
+     * @param upper The upper bound of the chromatic number, the computation stops once it reaches it.
+     * @param token The token that stops the run.
+     * @param limit The time limit of the bound, see {@link #TIME_LIMIT}.
+     * @return The fractional chromatic number rounded up, or a smaller lower bound of the chromatic number.
+     */
+    static int lowerBound(CompactGraph graph, int[] colouring, int upper, CancellationToken token, CancellationToken limit) {
+        if(graph.size() == 0) {
+            return 0;
+        }
+        return new FractionalBound(graph, colouring, token, limit).solve(upper);
+    }
+
+    private int solve(int upper) {
+        int lower = 1;
+        try {
+            for(int iteration = 0; iteration < MAX_ITERATIONS && lower < upper; iteration++) {
+                check();
+
+                final double[] weights = solveDual();
+                if(weights == null) {
+                    break;
+                }
+                double total = 0;
+                for(double weight : weights) {
+                    total += weight;
+                }
+
+                //--- the LP can not get below its current value, so it can not get us a better bound anymore
+                if(Math.ceil(total - EPSILON) <= lower) {
+                    break;
+                }
+
+                List<int[]> sets = greedyPricing(weights);
+                double heaviest = cliqueCover(weights, order(weights), this.graph.size());
+                if(sets.isEmpty()) {
+                    final Pricing pricing = new Pricing(weights);
+                    pricing.run();
+                    heaviest = pricing.getUpperBound();
+                    if(pricing.getWeight() > 1 + VIOLATION) {
+                        sets.add(pricing.getSet());
+                    }
+                }
+
+                //--- Farley: the weights divided by the heaviest independent set are a solution of the dual
+                lower = Math.max(lower, (int) Math.ceil(total / Math.max(1, heaviest) - EPSILON));
+                if(sets.isEmpty()) {
+                    break;
+                }
+                this.columns.addAll(sets);
+            }
+        } catch (CancellationException e) {
+            // the bound of the last iteration is still valid
+        }
+        return lower;
+    }
+
+    /**
+     * @throws CancellationException If the run got cancelled or the time of the bound is up.
+     */
+    private void check() {
+        this.token.check();
+        this.limit.check();
+    }
+
+    /**
+     * Solves the dual of the LP with the current columns.
+     * @return The weight of every node, null if the solver failed or ran out of time.
+     */
+    private double[] solveDual() {
+        final int n = this.graph.size();
+        ExpressionsBasedModel model = new ExpressionsBasedModel();
+        model.options.time_abort = Math.min(LP_TIME_LIMIT,
+                Math.min(this.limit.getRemainingMillis(), this.token.getRemainingMillis()));
+        Variable[] variables = new Variable[n];
+        for(int v = 0; v < n; v++) {
+            variables[v] = model.addVariable("y" + v).lower(0).upper(1).weight(1);
+        }
+        for(int i = 0; i < this.columns.size(); i++) {
+            Expression expression = model.addExpression("S" + i).upper(1);
+            for(int v : this.columns.get(i)) {
+                expression.set(variables[v], 1);
+            }
+        }
+
+        Optimisation.Result result = model.maximise();
+        if(!result.getState().isFeasible()) {
+            return null;
+        }
+        double[] weights = new double[n];
+        for(int v = 0; v < n; v++) {
+            weights[v] = Math.max(0, result.doubleValue(v));
+        }
+        return weights;
+    }
+
+    /**
+     * Builds an independent set from each of the heaviest nodes, by adding the other nodes from heavy to light if
+     * they are not adjacent to the set.
+     * @return The sets that weigh more than 1.
+     */
+    private List<int[]> greedyPricing(double[] weights) {
+        final int n = this.graph.size();
+        final int[] order = order(weights);
+
+        List<int[]> sets = new ArrayList<>();
+        int[] set = new int[n];
+        for(int start = 0; start < Math.min(GREEDY_STARTS, n) && weights[order[start]] > EPSILON; start++) {
+            int size = 0;
+            double weight = 0;
+            set[size++] = order[start];
+            weight += weights[order[start]];
+            for(int i = 0; i < n; i++) {
+                final int v = order[i];
+                if(i != start && isIndependent(set, size, v)) {
+                    set[size++] = v;
+                    weight += weights[v];
+                }
+            }
+
+            if(weight > 1 + VIOLATION) {
+                final int[] sorted = Arrays.copyOf(set, size);
+                Arrays.sort(sorted);
+                if(sets.stream().noneMatch(s -> Arrays.equals(s, sorted))) {
+                    sets.add(sorted);
+                }
+            }
+        }
+        return sets;
+    }
+
+    private boolean isIndependent(int[] set, int size, int v) {
+        for(int i = 0; i < size; i++) {
+            if(this.matrix.hasEdge(set[i], v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The indices of all nodes, the heaviest first.
+     */
+    private static int[] order(double[] weights) {
+        return IntStream.range(0, weights.length).boxed()
+                .sorted((a, b) -> -Double.compare(weights[a], weights[b]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Covers the nodes with cliques, an independent set contains at most one node of every clique.
+     * @param weights The weight of every node.
+     * @param nodes The nodes to cover, the heaviest first.
+     * @param size The amount of nodes.
+     * @return An upper bound of the weight of an independent set of the nodes, the sum of the heaviest node of every
+     * clique.
+     */
+    private double cliqueCover(double[] weights, int[] nodes, int size) {
+        int[][] cliques = new int[size][];
+        int[] sizes = new int[size];
+        int count = 0;
+        double bound = 0;
+        for(int i = 0; i < size; i++) {
+            final int v = nodes[i];
+            int c = 0;
+            while (c < count && !isClique(cliques[c], sizes[c], v)) {
+                c++;
+            }
+            if(c == count) {
+                cliques[count++] = new int[size - i];
+                //--- the nodes come heaviest first, so the first one is the heaviest of its clique
+                bound += weights[v];
+            }
+            cliques[c][sizes[c]++] = v;
+        }
+        return bound;
+    }
+
+    private boolean isClique(int[] clique, int size, int v) {
+        for(int i = 0; i < size; i++) {
+            if(!this.matrix.hasEdge(clique[i], v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Branch and bound for the heaviest independent set: it takes the heaviest candidate or leaves it out, and cuts
+     * every branch whose clique cover can not beat the best set.
+     */
+    private final class Pricing {
+
+        private final double[] weights;
+        private long budget = PRICING_BUDGET;
+        private boolean aborted = false;
+
+        private final int[] set;
+        private int size = 0;
+        private int[] best = new int[0];
+        private double bestWeight = 0;
+        private double rootBound;
+
+        Pricing(double[] weights) {
+            this.weights = weights;
+            this.set = new int[graph.size()];
+        }
+
+        /**
+         * @throws CancellationException If the run got cancelled or the time of the bound is up.
+         */
+        void run() {
+            final int[] candidates = order(this.weights);
+            this.rootBound = cliqueCover(this.weights, candidates, candidates.length);
+            search(candidates, candidates.length, 0);
+        }
+
+        /**
+         * @param candidates The nodes that can still be added, the heaviest first.
+         * @param count The amount of candidates.
+         * @param weight The weight of the current set.
+         */
+        private void search(int[] candidates, int count, double weight) {
+            if(--this.budget < 0) {
+                this.aborted = true;
+                return;
+            }
+            if(this.budget % CANCELLATION_CHECK == 0) {
+                check();
+            }
+            if(weight > this.bestWeight) {
+                this.bestWeight = weight;
+                this.best = Arrays.copyOf(this.set, this.size);
+            }
+            if(count == 0 || weight + cliqueCover(this.weights, candidates, count) <= this.bestWeight + EPSILON) {
+                return;
+            }
+
+            //--- take the heaviest candidate, the remaining candidates are the ones that are not its neighbours
+            final int v = candidates[0];
+            int[] remaining = new int[count - 1];
+            int remainingCount = 0;
+            for(int i = 1; i < count; i++) {
+                if(!matrix.hasEdge(v, candidates[i])) {
+                    remaining[remainingCount++] = candidates[i];
+                }
+            }
+            this.set[this.size++] = v;
+            search(remaining, remainingCount, weight + this.weights[v]);
+            this.size--;
+
+            //--- leave it out
+            if(!this.aborted) {
+                search(Arrays.copyOfRange(candidates, 1, count), count - 1, weight);
+            }
+        }
+
+        /**
+         * @return The weight of the heaviest independent set, if the search did not finish a bound of it.
+         */
+        double getUpperBound() {
+            return this.aborted ? this.rootBound : this.bestWeight;
+        }
+
+        double getWeight() {
+            return this.bestWeight;
+        }
+
+        int[] getSet() {
+            final int[] sorted = this.best.clone();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+}
@@ -1,20 +1,110 @@
 package edu.group20.chromflow.graph;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.ojalgo.matrix.store.SparseStore;
+
 import static edu.group20.chromflow.graph.Node.Edge;
 
 public class Graph implements Cloneable {
 
+    /**
+     * The max amount of nodes the dense matrices ({@link #toAdjacentMatrix()}, {@link #toLaplacianMatrix()}) are
+     * built for, 8 * n^2 bytes are about 128MB at this size.
+     */
+    public final static int MAX_DENSE_MATRIX_SIZE = 4096;
+
     private Meta meta = new Meta();
 
-    private Map<Integer, Node> nodes = new HashMap<>();
-    private Map<Integer, Map<Integer, Edge>> edges = new HashMap<>();
+    private final Map<Integer, Node> nodes;
+    private final Map<Integer, Map<Integer, Edge>> edges;
+
+    //--- read-only views of the maps above, all changes have to go through the methods of the graph so we can keep
+    // track of the statistics
+    private final Map<Integer, Node> nodesView;
+    private final Map<Integer, Map<Integer, Edge>> edgeViews;
+    private final Map<Integer, Map<Integer, Edge>> edgesView;
+
+    //--- statistics
+    private int edgeCount = 0;
+    /**
+     * The amount of edges A -> B without a matching B -> A.
+     */
+    private int oneDirectionalEdges = 0;
+    private int maxDegree = 0;
+    /**
+     * degreeHistogram[d] is the amount of nodes with degree d.
+     */
+    private int[] degreeHistogram = new int[16];
+    private int minNodeId = Integer.MAX_VALUE;
+    private int maxNodeId = Integer.MIN_VALUE;
+
+    /**
+     * The CSR snapshot of the graph, it also maps the node ids to the matrix indices. Dropped on every change.
+     */
+    private CompactGraph snapshot = null;
 
-    public Graph() {}
+    public Graph() {
+        this(16);
+    }
+
+    /**
+     * @param capacity The initial capacity of the maps, big enough for this many nodes without resizing.
+     */
+    private Graph(int capacity) {
+        this.nodes = new HashMap<>(capacity);
+        this.edges = new HashMap<>(capacity);
+        this.edgeViews = new HashMap<>(capacity);
+        this.nodesView = Collections.unmodifiableMap(this.nodes);
+        this.edgesView = Collections.unmodifiableMap(this.edgeViews);
+    }
+
+    /**
+     * Builds the graph from its CSR form in one pass, every map gets created with its final size and the statistics
+     * are computed once at the end. Used by the {@link GraphBuilder} and to load binary graph files.
+     * @param compact The graph, it becomes the cached snapshot of the graph.
+     * @return Never null.
+     */
+    public static Graph of(CompactGraph compact) {
+        final int n = compact.size();
+        Graph graph = new Graph(capacity(n));
+
+        Node[] nodes = new Node[n];
+        for(int v = 0; v < n; v++) {
+            nodes[v] = new Node(compact.getId(v), -1);
+            graph.nodes.put(nodes[v].getId(), nodes[v]);
+        }
+
+        graph.degreeHistogram = new int[Math.max(16, compact.getMaxDegree() + 1)];
+        for(int v = 0; v < n; v++) {
+            final int degree = compact.getDegree(v);
+            Map<Integer, Edge> edges = new HashMap<>(capacity(degree));
+            for(int i = 0; i < degree; i++) {
+                final int w = compact.getNeighbour(v, i);
+                edges.put(nodes[w].getId(), new Edge(nodes[v], nodes[w]));
+                if(Arrays.binarySearch(compact.neighbours, compact.offsets[w], compact.offsets[w + 1], v) < 0) {
+                    graph.oneDirectionalEdges++;
+                }
+            }
+            graph.edges.put(nodes[v].getId(), edges);
+            graph.edgeViews.put(nodes[v].getId(), Collections.unmodifiableMap(edges));
+            graph.degreeHistogram[degree]++;
+        }
+
+        graph.edgeCount = (int) compact.getEdgeCount();
+        graph.maxDegree = compact.getMaxDegree();
+        if(n > 0) {
+            graph.minNodeId = compact.getId(0);
+            graph.maxNodeId = compact.getId(n - 1);
+        }
+        graph.snapshot = compact;
+        return graph;
+    }
 
     /**
      * Returns some data that contains meta information for the graph that is required for some algorithms but not strictly
@@ -26,11 +116,28 @@ public class Graph implements Cloneable {
     }
 
     /**
-     * Counts the amount of edges in the graph.
+     * Returns the amount of edges in the graph, every edge in both directions counts twice.
      * @return
      */
     public int getEdgeCount() {
-        return edges.values().stream().mapToInt(Map::size).sum();
+        return this.edgeCount;
+    }
+
+    /**
+     * Returns the highest degree of all nodes.
+     * @return
+     */
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    /**
+     * Returns the amount of nodes with the given degree.
+     * @param degree
+     * @return
+     */
+    public int getDegreeFrequency(int degree) {
+        return degree >= 0 && degree < this.degreeHistogram.length ? this.degreeHistogram[degree] : 0;
     }
 
     /**
@@ -66,12 +173,59 @@ public class Graph implements Cloneable {
     public boolean addNode(int id, int value) {
         if(!(this.nodes.containsKey(id))) {
             this.nodes.put(id, new Node(id, value));
-            this.edges.put(id, new HashMap<>());
+            Map<Integer, Edge> edges = new HashMap<>();
+            this.edges.put(id, edges);
+            this.edgeViews.put(id, Collections.unmodifiableMap(edges));
+
+            this.degreeHistogram[0]++;
+            this.snapshot = null;
+            this.minNodeId = Math.min(this.minNodeId, id);
+            this.maxNodeId = Math.max(this.maxNodeId, id);
             return true;
         }
         return false;
     }
 
+    /**
+     * Removes a node and all the edges from and to the node.
+     * @param id The id of the node.
+     * @return True, if the node was removed, false if the id is not part of the graph.
+     */
+    public boolean removeNode(int id) {
+        if(!(this.nodes.containsKey(id))) {
+            return false;
+        }
+
+        final Map<Integer, Edge> outgoing = this.edges.get(id);
+        for(int to : outgoing.keySet().toArray(new Integer[0])) {
+            removeEdge(id, to, false);
+            removeEdge(to, id, false);
+        }
+        // edges that only point to the node
+        if(this.oneDirectionalEdges > 0) {
+            for(int from : this.edges.keySet()) {
+                if(this.edges.get(from).containsKey(id)) {
+                    removeEdge(from, id, false);
+                }
+            }
+        }
+
+        this.nodes.remove(id);
+        this.edges.remove(id);
+        this.edgeViews.remove(id);
+        this.degreeHistogram[0]--;
+        this.snapshot = null;
+        if(this.nodes.isEmpty()) {
+            this.maxDegree = 0;
+        }
+
+        //--- recomputed right away, so the getters stay read-only and can be called from several threads
+        if(id == this.minNodeId || id == this.maxNodeId) {
+            updateNodeIds();
+        }
+        return true;
+    }
+
     /**
      * This adds an edge between A -> B.
      * @param from Start node id.
@@ -81,13 +235,64 @@ public class Graph implements Cloneable {
     public void addEdge(int from, int to, boolean bidirectional) {
 
         if(bidirectional && hasEdge(from, to)) return;
-        this.edges.get(from).put(to, new Edge(this.getNode(from), this.getNode(to)));
+        final Map<Integer, Edge> outgoing = this.edges.get(from);
+        if(outgoing.put(to, new Edge(this.getNode(from), this.getNode(to))) == null) {
+            degreeChanged(outgoing.size() - 1, outgoing.size());
+            this.edgeCount++;
+            if(from != to) {
+                this.oneDirectionalEdges += this.edges.get(to).containsKey(from) ? -1 : 1;
+            }
+        }
 
         if(bidirectional) {
             addEdge(to, from, false);
         }
     }
 
+    /**
+     * Removes the edge between A -> B.
+     * @param from Start node id.
+     * @param to End node id.
+     * @param bidirectional Removes also the edge from B -> A.
+     * @return True, if the edge from A -> B existed.
+     */
+    public boolean removeEdge(int from, int to, boolean bidirectional) {
+        final Map<Integer, Edge> outgoing = this.edges.get(from);
+        final boolean removed = outgoing != null && outgoing.remove(to) != null;
+        if(removed) {
+            degreeChanged(outgoing.size() + 1, outgoing.size());
+            this.edgeCount--;
+            if(from != to) {
+                this.oneDirectionalEdges += this.edges.get(to).containsKey(from) ? 1 : -1;
+            }
+        }
+
+        if(bidirectional) {
+            removeEdge(to, from, false);
+        }
+        return removed;
+    }
+
+    /**
+     * Updates the degree statistics after the degree of a node changed by one.
+     * @param oldDegree
+     * @param newDegree
+     */
+    private void degreeChanged(int oldDegree, int newDegree) {
+        if(newDegree >= this.degreeHistogram.length) {
+            this.degreeHistogram = Arrays.copyOf(this.degreeHistogram, this.degreeHistogram.length * 2);
+        }
+        this.degreeHistogram[oldDegree]--;
+        this.degreeHistogram[newDegree]++;
+        this.snapshot = null;
+
+        if(newDegree > this.maxDegree) {
+            this.maxDegree = newDegree;
+        } else if(oldDegree == this.maxDegree && this.degreeHistogram[oldDegree] == 0) {
+            this.maxDegree = newDegree;
+        }
+    }
+
     /**
      * Returns a node based on the given id.
      * @param i The id of the nod.
@@ -118,26 +323,26 @@ public class Graph implements Cloneable {
     /**
      * All edges assocaited with the node.
      * @param node The id of the node.
-     * @return A map of all the associated edges.
+     * @return A read-only map of all the associated edges.
      */
     public Map<Integer, Edge> getEdges(int node) {
-        return this.edges.get(node);
+        return this.edgeViews.get(node);
     }
 
     /**
      * All nodes of the graph.
-     * @return never null.
+     * @return never null, read-only.
      */
     public Map<Integer, Node> getNodes() {
-        return this.nodes;
+        return this.nodesView;
     }
 
     /**
      * All edges of the graph.
-     * @return Never null.
+     * @return Never null, read-only.
      */
     public Map<Integer, Map<Integer, Edge>> getEdges() {
-        return this.edges;
+        return this.edgesView;
     }
 
 
@@ -146,12 +351,7 @@ public class Graph implements Cloneable {
      * @return
      */
     public int getMaxNodeId() {
-        int max = Integer.MIN_VALUE;
-        for(Node n : nodes.values()) {
-            max = Math.max(n.getId(), max);
-        }
-        return max;
-        //return this.nodes.values().stream().max(Comparator.comparingInt(Node::getId)).get().getId();
+        return this.maxNodeId;
     }
 
     /**
@@ -159,12 +359,21 @@ public class Graph implements Cloneable {
      * @return
      */
     public int getMinNodeId() {
+        return this.minNodeId;
+    }
+
+    /**
+     * Recomputes the min and max id, after one of them got removed.
+     */
+    private void updateNodeIds() {
         int min = Integer.MAX_VALUE;
-        for(Node n : nodes.values()) {
-            min = Math.min(n.getId(), min);
+        int max = Integer.MIN_VALUE;
+        for(int id : this.nodes.keySet()) {
+            min = Math.min(id, min);
+            max = Math.max(id, max);
         }
-        return min;
-        //return this.nodes.values().stream().min(Comparator.comparingInt(Node::getId)).get().getId();
+        this.minNodeId = min;
+        this.maxNodeId = max;
     }
 
     /**
@@ -187,17 +396,41 @@ public class Graph implements Cloneable {
     }
 
     /**
-     * Clones the graph by copying all the nodes and edges.
+     * Clones the graph by copying all the nodes and edges in one pass. The maps get created with their final size, the
+     * statistics are copied instead of recomputed, and the immutable CSR snapshot is shared.
      * @return
      */
     @Override
     public Graph clone() {
-        Graph clone = new Graph();
-        this.nodes.forEach((k, v) -> clone.addNode(k, v.getValue()));
-        this.edges.forEach((k, v) -> v.forEach((id, edge) -> clone.addEdge(edge.getFrom().getId(), edge.getTo().getId(), true)));
+        Graph clone = new Graph(capacity(this.nodes.size()));
+        this.nodes.forEach((id, node) -> clone.nodes.put(id, new Node(id, node.getValue())));
+
+        this.edges.forEach((from, outgoing) -> {
+            final Node fromNode = clone.nodes.get(from);
+            Map<Integer, Edge> edges = new HashMap<>(capacity(outgoing.size()));
+            outgoing.forEach((to, edge) -> edges.put(to, new Edge(fromNode, clone.nodes.get(to))));
+            clone.edges.put(from, edges);
+            clone.edgeViews.put(from, Collections.unmodifiableMap(edges));
+        });
+
+        clone.edgeCount = this.edgeCount;
+        clone.oneDirectionalEdges = this.oneDirectionalEdges;
+        clone.maxDegree = this.maxDegree;
+        clone.degreeHistogram = this.degreeHistogram.clone();
+        clone.minNodeId = this.minNodeId;
+        clone.maxNodeId = this.maxNodeId;
+        clone.snapshot = this.snapshot;
         return clone;
     }
 
+    /**
+     * @param size The amount of entries.
+     * @return The capacity a {@link HashMap} needs to hold the entries without resizing.
+     */
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
     //---
 
     /**
@@ -263,65 +496,112 @@ public class Graph implements Cloneable {
      * @return
      */
     public boolean isComplete(){
-        return nodes.keySet().stream().allMatch(id -> edges.get(id).size() == nodes.size() - 1);
+        return getDegreeFrequency(nodes.size() - 1) == nodes.size();
     }
 
     /**
-     * Turns the graph into a adjacency matrix.
+     * Returns the CSR snapshot of the graph. It is cached until the graph gets changed, so repeated calls are free.
+     * @return Never null.
+     */
+    public CompactGraph toCompactGraph() {
+        if(this.snapshot == null) {
+            this.snapshot = CompactGraph.of(this);
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Turns the graph into a adjacency matrix. The rows and columns are ordered like the indices of
+     * {@link #toCompactGraph()}.
      * @return
+     * @throws IllegalStateException If the graph has more than {@link #MAX_DENSE_MATRIX_SIZE} nodes, use
+     * {@link #toSparseAdjacentMatrix()} instead.
      */
     public double[][] toAdjacentMatrix(){
-
-        double[][] adjacentMatrix = new double[nodes.size()][nodes.size()];
-
-        Map<Integer, Integer> mapping = new HashMap<>();
-        int index = 0;
-        for(Node n : nodes.values()) {
-            mapping.put(n.getId(), index);
-            index++;
+        final CompactGraph graph = denseSnapshot();
+        double[][] adjacentMatrix = new double[graph.size()][graph.size()];
+
+        for(int v = 0; v < graph.size(); v++) {
+            for(int i = 0; i < graph.getDegree(v); i++) {
+                final int w = graph.getNeighbour(v, i);
+                adjacentMatrix[v][w] = 1;
+                adjacentMatrix[w][v] = 1;
+            }
         }
 
-        nodes.forEach((from_id, n) -> {
-            final int mapFromId = mapping.get(from_id);
-            getEdges(n.getId()).forEach((to_id, e) -> {
-                final int mapToId = mapping.get(to_id);
-                adjacentMatrix[mapFromId][mapToId] = 1;
-                adjacentMatrix[mapToId][mapFromId] = 1;
-            });
-        });
-
         return adjacentMatrix;
     }
 
     /**
-     * Turns the graph into a Laplacian matrix.
+     * Turns the graph into a Laplacian matrix. The rows and columns are ordered like the indices of
+     * {@link #toCompactGraph()}.
      * @return
+     * @throws IllegalStateException If the graph has more than {@link #MAX_DENSE_MATRIX_SIZE} nodes, use
+     * {@link #toSparseLaplacianMatrix()} instead.
      */
     public double[][] toLaplacianMatrix(){
-
-        double[][] laplacianMatrix = new double[nodes.size()][nodes.size()];
-
-        Map<Integer, Integer> mapping = new HashMap<>();
-        int index = 0;
-        for(Node n : nodes.values()) {
-            mapping.put(n.getId(), index);
-            index++;
+        final CompactGraph graph = denseSnapshot();
+        double[][] laplacianMatrix = new double[graph.size()][graph.size()];
+
+        for(int v = 0; v < graph.size(); v++) {
+            for(int i = 0; i < graph.getDegree(v); i++) {
+                final int w = graph.getNeighbour(v, i);
+                laplacianMatrix[v][w] = -1;
+                laplacianMatrix[w][v] = -1;
+            }
+            laplacianMatrix[v][v] = graph.getDegree(v);
         }
 
-        nodes.forEach((from_id, n) -> {
-            final int mapFromId = mapping.get(from_id);
+        return laplacianMatrix;
+    }
+
+    /**
+     * Turns the graph into a sparse adjacency matrix that only stores the edges. The rows and columns are ordered
+     * like the indices of {@link #toCompactGraph()}, and the graph is expected to be undirected.
+     * @return
+     */
+    public SparseStore<Double> toSparseAdjacentMatrix() {
+        return toSparseMatrix(false);
+    }
 
-            getEdges(n.getId()).forEach((to_id, e) -> {
-                final int mapToId = mapping.get(to_id);
-                laplacianMatrix[mapFromId][mapToId] = -1;
-                laplacianMatrix[mapToId][mapFromId] = -1;
-            });
+    /**
+     * Turns the graph into a sparse Laplacian matrix, see {@link #toSparseAdjacentMatrix()}.
+     * @return
+     */
+    public SparseStore<Double> toSparseLaplacianMatrix() {
+        return toSparseMatrix(true);
+    }
 
-            laplacianMatrix[mapFromId][mapFromId] = edges.get(from_id).size();
+    private SparseStore<Double> toSparseMatrix(boolean laplacian) {
+        final CompactGraph graph = toCompactGraph();
+        SparseStore<Double> matrix = SparseStore.makePrimitive(graph.size(), graph.size());
+
+        //--- the store is column-major, so we go through the columns and the (sorted) rows in ascending order to
+        // always append at the end
+        for(int v = 0; v < graph.size(); v++) {
+            boolean diagonal = !laplacian;
+            for(int i = 0; i < graph.getDegree(v); i++) {
+                final int w = graph.getNeighbour(v, i);
+                if(!diagonal && w > v) {
+                    matrix.set(v, v, graph.getDegree(v));
+                    diagonal = true;
+                }
+                matrix.set(w, v, laplacian ? -1 : 1);
+            }
+            if(!diagonal) {
+                matrix.set(v, v, graph.getDegree(v));
+            }
+        }
 
-        });
+        return matrix;
+    }
 
-        return laplacianMatrix;
+    private CompactGraph denseSnapshot() {
+        if(this.nodes.size() > MAX_DENSE_MATRIX_SIZE) {
+            throw new IllegalStateException(String.format("A dense matrix of %d nodes would be too large, the limit is %d.",
+                    this.nodes.size(), MAX_DENSE_MATRIX_SIZE));
+        }
+        return toCompactGraph();
     }
 
     /**
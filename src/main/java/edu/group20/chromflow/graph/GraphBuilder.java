@@ -0,0 +1,194 @@
+package edu.group20.chromflow.graph;
+
+import java.util.Arrays;
+
+/**
+ * Collects the (undirected) edges of a graph in a primitive buffer and builds the graph from it in one go. Instead of
+ * checking every edge while it gets added, the buffer gets sorted once, duplicates and loops are dropped, and the
+ * adjacency is built with the exact final sizes.
+ */
+public class GraphBuilder {
+
+    /**
+     * Every edge is packed into a long with the smaller id in the upper and the larger id in the lower 32 bits. The
+     * sign bit of the lower id is flipped, so sorting the longs sorts the edges by (smaller id, larger id).
+     */
+    private long[] edges;
+    private int edgeCount = 0;
+
+    /**
+     * Nodes that were added on their own, they might not have any edges.
+     */
+    private int[] nodes = new int[16];
+    private int nodeCount = 0;
+
+    public GraphBuilder() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedEdges The amount of edges the buffer should be able to hold before it has to grow.
+     */
+    public GraphBuilder(int expectedEdges) {
+        this.edges = new long[Math.max(16, expectedEdges)];
+    }
+
+    /**
+     * Adds a node, even if it does not have any edges.
+     * @param id The id of the node.
+     * @return this
+     */
+    public GraphBuilder addNode(int id) {
+        if(this.nodeCount == this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, this.nodes.length * 2);
+        }
+        this.nodes[this.nodeCount++] = id;
+        return this;
+    }
+
+    /**
+     * Adds an undirected edge. Both nodes are added if they are new, a loop only adds its node.
+     * @param from The id of the first node.
+     * @param to The id of the second node.
+     * @return this
+     */
+    public GraphBuilder addEdge(int from, int to) {
+        if(from == to) {
+            return addNode(from);
+        }
+        if(this.edgeCount == this.edges.length) {
+            this.edges = Arrays.copyOf(this.edges, this.edges.length * 2);
+        }
+        this.edges[this.edgeCount++] = pack(Math.min(from, to), Math.max(from, to));
+        return this;
+    }
+
+    /**
+     * Adds the undirected edges (pairs[0], pairs[1]), (pairs[2], pairs[3]), ...
+     * @param pairs The node ids.
+     * @param length The amount of ids to read from the array, an even number.
+     * @return this
+     */
+    public GraphBuilder addEdges(int[] pairs, int length) {
+        if(length % 2 != 0) {
+            throw new IllegalArgumentException("The edges need an even amount of node ids.");
+        }
+        final int required = this.edgeCount + length / 2;
+        if(required > this.edges.length) {
+            this.edges = Arrays.copyOf(this.edges, Math.max(required, this.edges.length * 2));
+        }
+        for(int i = 0; i < length; i += 2) {
+            addEdge(pairs[i], pairs[i + 1]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds all nodes and edges of the other builder.
+     * @param other The builder, it does not get changed.
+     * @return this
+     */
+    public GraphBuilder addAll(GraphBuilder other) {
+        if(this.edgeCount + other.edgeCount > this.edges.length) {
+            this.edges = Arrays.copyOf(this.edges, this.edgeCount + other.edgeCount);
+        }
+        System.arraycopy(other.edges, 0, this.edges, this.edgeCount, other.edgeCount);
+        this.edgeCount += other.edgeCount;
+
+        if(this.nodeCount + other.nodeCount > this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, this.nodeCount + other.nodeCount);
+        }
+        System.arraycopy(other.nodes, 0, this.nodes, this.nodeCount, other.nodeCount);
+        this.nodeCount += other.nodeCount;
+        return this;
+    }
+
+    /**
+     * @return The amount of edges added so far, including duplicates.
+     */
+    public int getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * Builds the CSR form of the graph, the builder can be used further afterwards.
+     * @return Never null.
+     */
+    public CompactGraph buildCompact() {
+        //--- sort the edges and drop the duplicates
+        long[] sorted = Arrays.copyOf(this.edges, this.edgeCount);
+        Arrays.parallelSort(sorted);
+        int m = 0;
+        for(int i = 0; i < sorted.length; i++) {
+            if(m == 0 || sorted[m - 1] != sorted[i]) {
+                sorted[m++] = sorted[i];
+            }
+        }
+
+        //--- all ids, sorted and unique
+        int[] ids = new int[2 * m + this.nodeCount];
+        for(int i = 0; i < m; i++) {
+            ids[2 * i] = from(sorted[i]);
+            ids[2 * i + 1] = to(sorted[i]);
+        }
+        System.arraycopy(this.nodes, 0, ids, 2 * m, this.nodeCount);
+        Arrays.parallelSort(ids);
+        int n = 0;
+        for(int i = 0; i < ids.length; i++) {
+            if(n == 0 || ids[n - 1] != ids[i]) {
+                ids[n++] = ids[i];
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+
+        //--- translate the ids once and count the degrees
+        int[] endpoints = new int[2 * m];
+        int[] offsets = new int[n + 1];
+        for(int i = 0; i < m; i++) {
+            final int u = Arrays.binarySearch(ids, from(sorted[i]));
+            final int v = Arrays.binarySearch(ids, to(sorted[i]));
+            endpoints[2 * i] = u;
+            endpoints[2 * i + 1] = v;
+            offsets[u + 1]++;
+            offsets[v + 1]++;
+        }
+        for(int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        //--- The edges are sorted by (u, v) with u < v. So every node first gets its smaller neighbours (from the
+        // edges where it is v) and then its larger neighbours (where it is u), both ascending, and the rows end up
+        // sorted without sorting them.
+        int[] neighbours = new int[2 * m];
+        int[] position = Arrays.copyOf(offsets, n);
+        for(int i = 0; i < m; i++) {
+            final int u = endpoints[2 * i];
+            final int v = endpoints[2 * i + 1];
+            neighbours[position[u]++] = v;
+            neighbours[position[v]++] = u;
+        }
+
+        return new CompactGraph(ids, offsets, neighbours);
+    }
+
+    /**
+     * Builds the graph, the builder can be used further afterwards.
+     * @return Never null.
+     */
+    public Graph build() {
+        return Graph.of(buildCompact());
+    }
+
+    static long pack(int from, int to) {
+        return ((long) from << 32) | ((to & 0xFFFFFFFFL) ^ 0x80000000L);
+    }
+
+    static int from(long edge) {
+        return (int) (edge >> 32);
+    }
+
+    static int to(long edge) {
+        return (int) ((edge & 0xFFFFFFFFL) ^ 0x80000000L);
+    }
+
+}
@@ -1,19 +1,25 @@
 package edu.group20.chromflow.graph;
 
-import Jama.EigenvalueDecomposition;
 import Jama.Matrix;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GraphStructures {
 
     /**
-     * All algorithms based on eigenvalues.
+     * All algorithms based on eigenvalues. Graphs with up to {@link Graph#MAX_DENSE_MATRIX_SIZE} nodes get a full
+     * decomposition of their dense matrix, larger graphs only get the extreme eigenvalues approximated with the Lanczos
+     * method on their CSR form, which is all these algorithms look at.
      */
     public static class EVBAsed {
 
         private final static double EPSILON = 1E-14;
+        /**
+         * The approximated eigenvalues are not as precise, so they are compared with a tolerance relative to the
+         * largest eigenvalue.
+         */
+        private final static double LANCZOS_EPSILON = 1E-8;
+        private final static int LANCZOS_STEPS = 48;
 
         /**
          * Checks if the graph is likely planar buy comparing the second smallest and third smallest eigenvalues of
@@ -25,16 +31,15 @@ public class GraphStructures {
             //http://www.cs.yale.edu/homes/spielman/561/lect20-15.pdf
             // http://cs-www.cs.yale.edu/homes/spielman/TALKS/blyth1.pdf -> page 61
 
-            double[] eig = new Matrix(graph.toLaplacianMatrix()).eig().getRealEigenvalues();
+            double[] eig = eigenvalues(graph, true);
             if (eig.length < 3) return false;
-            Arrays.sort(eig);
 
             double secondSmallest = eig[1];
             double thirdSmallest = eig[2];
 
-            if (secondSmallest <= 0) return false;
+            if (secondSmallest <= epsilon(graph, eig)) return false;
 
-            final double maxDegree = graph.getEdges().values().stream().mapToInt(Map::size).max().getAsInt();
+            final double maxDegree = graph.getMaxDegree();
             return (secondSmallest <= (8 * maxDegree) / graph.getNodes().size() &&
                     thirdSmallest <= Math.ceil(maxDegree / graph.getNodes().size()));
         }
@@ -45,11 +50,7 @@ public class GraphStructures {
          * @return
          */
         public static int lowerBoundEigenValue(Graph graph) {
-
-            Matrix matrix = new Matrix(graph.toAdjacentMatrix());
-            EigenvalueDecomposition eigenvalues = matrix.eig();
-            double[] eig = eigenvalues.getRealEigenvalues();
-            Arrays.sort(eig);
+            double[] eig = eigenvalues(graph, false);
             return (int) Math.ceil(1 + (eig[eig.length - 1] / -eig[0]));
         }
 
@@ -59,10 +60,7 @@ public class GraphStructures {
          * @return
          */
         public static int upperBoundEigenValue(Graph graph) {
-            Matrix matrix = new Matrix(graph.toAdjacentMatrix());
-            EigenvalueDecomposition eigenvalues = matrix.eig();
-            double[] eig = eigenvalues.getRealEigenvalues();
-            Arrays.sort(eig);
+            double[] eig = eigenvalues(graph, false);
             return (int) Math.ceil(1 + eig[eig.length - 1]);
         }
 
@@ -72,12 +70,8 @@ public class GraphStructures {
          * @return
          */
         public static boolean isBipartiteEigenValue(Graph graph) {
-            Matrix matrix = new Matrix(graph.toAdjacentMatrix());
-            EigenvalueDecomposition eigenvalues = matrix.eig();
-            double[] eig = eigenvalues.getRealEigenvalues();
-            Arrays.sort(eig);
-            final double EPSILON = 1E-14;
-            return (Math.abs(eig[0] + eig[eig.length - 1]) <= EPSILON);
+            double[] eig = eigenvalues(graph, false);
+            return (Math.abs(eig[0] + eig[eig.length - 1]) <= epsilon(graph, eig));
         }
 
         /**
@@ -86,84 +80,166 @@ public class GraphStructures {
          * @return
          */
         public static boolean isCompleteEigenValue(Graph graph) {
-
-            Matrix matrix = new Matrix(graph.toAdjacentMatrix());
-            EigenvalueDecomposition eigenvalues = matrix.eig();
-            double[] eig = eigenvalues.getRealEigenvalues();
-            Arrays.sort(eig);
-            return (Math.abs(eig[eig.length - 2] + 1) <= EPSILON);
+            double[] eig = eigenvalues(graph, false);
+            return (Math.abs(eig[eig.length - 2] + 1) <= epsilon(graph, eig));
         }
-    }
-
-    public static class Cycle {
 
         /**
-         * Checks if the graph has a cycle.
          * @param graph
-         * @return
+         * @param laplacian True for the eigenvalues of the Laplacian matrix, otherwise of the adjacency matrix.
+         * @return All eigenvalues for small graphs, the approximated extreme eigenvalues for large graphs. Ascending.
          */
-        public static boolean hasCycle(Graph graph){
-            graph.isComplete();
-
-            Boolean[] visited=new Boolean[graph.getNodes().size()];
-
-            for(int i=0; i<visited.length; i++){
-                visited[i]=false;
+        private static double[] eigenvalues(Graph graph, boolean laplacian) {
+            if(graph.getNodes().size() > Graph.MAX_DENSE_MATRIX_SIZE) {
+                return extremeEigenvalues(graph.toCompactGraph(), laplacian);
             }
 
-            boolean cyclic=false;
-
-            for( int i=1; i<= graph.getNodes().size(); i++){
+            double[] eig = new Matrix(laplacian ? graph.toLaplacianMatrix() : graph.toAdjacentMatrix()).eig().getRealEigenvalues();
+            Arrays.sort(eig);
+            return eig;
+        }
 
-                if(!visited[i-1]){
+        private static double epsilon(Graph graph, double[] eig) {
+            if(graph.getNodes().size() > Graph.MAX_DENSE_MATRIX_SIZE) {
+                return LANCZOS_EPSILON * Math.max(1, Math.abs(eig[eig.length - 1]));
+            }
+            return EPSILON;
+        }
 
-                    if(izCycle(graph, graph.getNode(i), visited, new Node(-1, -1))){
+        /**
+         * Approximates the smallest and the largest eigenvalues of the adjacency (or Laplacian) matrix of an undirected
+         * graph with the Lanczos method. The matrix is never built, the algorithm only multiplies vectors with it by
+         * going over the neighbours of the nodes, and it keeps {@value #LANCZOS_STEPS} vectors of size n.
+         * @param graph
+         * @param laplacian True for the eigenvalues of the Laplacian matrix, otherwise of the adjacency matrix.
+         * @return The Ritz values, ascending. The first and the last few converge to the extreme eigenvalues of the
+         * matrix first.
+         */
+        public static double[] extremeEigenvalues(IndexedGraph graph, boolean laplacian) {
+            final int n = graph.size();
+            final int steps = Math.min(n, LANCZOS_STEPS);
+            if(steps == 0) {
+                return new double[0];
+            }
 
-                        cyclic=true;
+            double[][] basis = new double[steps][];
+            double[] alpha = new double[steps];
+            double[] beta = new double[steps];
 
+            //--- fixed seed, so the results are reproducible
+            Random random = new Random(n);
+            double[] q = new double[n];
+            for(int v = 0; v < n; v++) {
+                q[v] = random.nextDouble() - 0.5;
+            }
+            scale(q, 1 / Math.sqrt(dot(q, q)));
+
+            int m = 0;
+            while (m < steps) {
+                basis[m] = q;
+                double[] w = new double[n];
+                for(int v = 0; v < n; v++) {
+                    double sum = 0;
+                    final int degree = graph.getDegree(v);
+                    for(int i = 0; i < degree; i++) {
+                        sum += q[graph.getNeighbour(v, i)];
                     }
+                    w[v] = laplacian ? degree * q[v] - sum : sum;
+                }
+                alpha[m] = dot(w, q);
+                m++;
+
+                //--- full re-orthogonalisation, otherwise copies of the converged eigenvalues show up
+                for(int j = 0; j < m; j++) {
+                    final double projection = dot(w, basis[j]);
+                    for(int v = 0; v < n; v++) {
+                        w[v] -= projection * basis[j][v];
+                    }
+                }
 
+                final double norm = Math.sqrt(dot(w, w));
+                if(m == steps || norm < 1E-10) {
+                    break;
                 }
+                beta[m - 1] = norm;
+                scale(w, 1 / norm);
+                q = w;
+            }
+
+            //--- the eigenvalues of the small tridiagonal matrix approximate the ones of the graph
+            double[][] tridiagonal = new double[m][m];
+            for(int i = 0; i < m; i++) {
+                tridiagonal[i][i] = alpha[i];
+                if(i + 1 < m) {
+                    tridiagonal[i][i + 1] = beta[i];
+                    tridiagonal[i + 1][i] = beta[i];
+                }
+            }
+            double[] eig = new Matrix(tridiagonal).eig().getRealEigenvalues();
+            Arrays.sort(eig);
+            return eig;
+        }
 
+        private static double dot(double[] a, double[] b) {
+            double sum = 0;
+            for(int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
             }
+            return sum;
+        }
 
-            return cyclic;
+        private static void scale(double[] a, double factor) {
+            for(int i = 0; i < a.length; i++) {
+                a[i] *= factor;
+            }
         }
+    }
+
+    public static class Cycle {
 
         /**
-         * Checks if there is a cycle outgoing from the source node.
+         * Checks if the graph has a cycle. A forest has exactly n - c edges where c is the amount of components, so
+         * every additional edge closes a cycle.
          * @param graph
-         * @param source
-         * @param visited
-         * @param parent
          * @return
          */
-        public static boolean izCycle(Graph graph, Node source, Boolean visited[], Node parent ){
-
-
-            //if (source.getValue() != -1) return true;
-
-            visited[source.getId()-1]=true;
-
-            List<Node> neighbours=graph.getNeighbours(source);
-
-            for(int i=0; i<neighbours.size(); i++ ){
-
-                if (!visited[neighbours.get(i).getId()-1]){
-
-                    return izCycle( graph, neighbours.get(i) , visited, source);
-
-                }
-
-                else if( neighbours.get(i)!= parent ){
+        public static boolean hasCycle(Graph graph){
+            return hasCycle(graph.toCompactGraph());
+        }
 
-                    return true;
+        /**
+         * Checks if the graph has a cycle.
+         * @param graph
+         * @return
+         */
+        public static boolean hasCycle(IndexedGraph graph) {
+            final int n = graph.size();
+            boolean[] visited = new boolean[n];
+            int[] queue = new int[n];
+
+            int components = 0;
+            for(int start = 0; start < n; start++) {
+                if(visited[start]) continue;
+                components++;
+
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                visited[start] = true;
+                while (head < tail) {
+                    final int v = queue[head++];
+                    final int degree = graph.getDegree(v);
+                    for(int i = 0; i < degree; i++) {
+                        final int w = graph.getNeighbour(v, i);
+                        if(!visited[w]) {
+                            visited[w] = true;
+                            queue[tail++] = w;
+                        }
+                    }
                 }
-
             }
 
-            return false;
-
+            return graph.getEdgeCount() / 2 > n - components;
         }
 
         /**
@@ -172,37 +248,21 @@ public class GraphStructures {
          * @return
          */
         public static boolean hasOddCycle(Graph graph){
-            List<Node> parent=new ArrayList<>();
-            parent.add(graph.getNode(graph.getMinNodeId()));
-            return hasCycle(graph) && !isBipartite(graph, parent);
+            return !Test.isBipartite(graph.toCompactGraph());
         }
 
         /**
          * Checks if the graph is bipartite.
          * @param graph
-         * @param parent
          * @return
          */
-        public static boolean isBipartite( Graph graph, List<Node> parent){
+        public static boolean isBipartite(Graph graph){
 
             if(graph.getNodes().size()<2){ //probably check somewhere else
                 return false;
             }
 
-            if(graph.isColored()){
-                return true;
-            }
-
-            graph.colourNeighbours(parent);
-            List<Node> newParents=new ArrayList<>();
-            for(int i=0; i<parent.size();i++){
-                if(graph.hasNeighbourSameColour( parent.get(i))){
-                    return false;
-                }
-                newParents.addAll(graph.getNeighbours(parent.get(i)));
-            }
-
-            return isBipartite( graph, newParents);
+            return Test.isBipartite(graph.toCompactGraph());
 
         }
 
@@ -216,60 +276,127 @@ public class GraphStructures {
          * @return
          */
         public static boolean isConnected(Graph graph) {
-            return isConnected(graph, graph.getNode(graph.getMinNodeId()));
+            return isConnected(graph.toCompactGraph());
         }
 
         /**
-         * Checks if the graph is connected starting from a certain node.
+         * Checks if the graph is connected by running a BFS from the node with the index 0.
          * @param graph
-         * @param start The node to start at.
          * @return
          */
-        public static boolean isConnected(Graph graph, Node start) {
-            Stack<Node> nodes = new Stack<>();
-            nodes.push(start);
-
-            while (!(nodes.isEmpty())) {
-                Node n = nodes.pop();
-                n.setValue(0);
-                nodes.addAll(graph.getNeighbours(n).stream().filter(e -> e.getValue() == -1).collect(Collectors.toList()));
+        public static boolean isConnected(IndexedGraph graph) {
+            final int n = graph.size();
+            if(n == 0) {
+                return true;
             }
 
-            return graph.getNodes().values().stream().noneMatch(e -> e.getValue() == -1);
+            boolean[] visited = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = 0;
+            visited[0] = true;
+
+            while (head < tail) {
+                final int v = queue[head++];
+                final int degree = graph.getDegree(v);
+                for(int i = 0; i < degree; i++) {
+                    final int w = graph.getNeighbour(v, i);
+                    if(!visited[w]) {
+                        visited[w] = true;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+
+            return tail == n;
+        }
+
+        /**
+         * Checks if the graph is bipartite by trying to 2-colour every component with a BFS.
+         * @param graph
+         * @return
+         */
+        public static boolean isBipartite(IndexedGraph graph) {
+            return bipartition(graph) != null;
+        }
+
+        /**
+         * Tries to 2-colour every component of the graph with a BFS.
+         * @param graph
+         * @return The colour (0 or 1) of every node, null if the graph is not bipartite.
+         */
+        public static int[] bipartition(IndexedGraph graph) {
+            final int n = graph.size();
+            int[] side = new int[n];
+            int[] queue = new int[n];
+
+            for(int start = 0; start < n; start++) {
+                if(side[start] != 0) continue;
+
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                side[start] = 1;
+
+                while (head < tail) {
+                    final int v = queue[head++];
+                    final int degree = graph.getDegree(v);
+                    for(int i = 0; i < degree; i++) {
+                        final int w = graph.getNeighbour(v, i);
+                        if(side[w] == 0) {
+                            side[w] = -side[v];
+                            queue[tail++] = w;
+                        } else if(side[w] == side[v]) {
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            for(int v = 0; v < n; v++) {
+                side[v] = side[v] == 1 ? 0 : 1;
+            }
+            return side;
         }
 
         /**
          * Checks if the node is the center of a wheel in a graph. This is a very hacky implementation and can break
          * under certain conditions. TODO Improve correctness.
          * @param graph
-         * @param node
+         * @param node The index of the node.
+         * @param state Shared between the calls for the same graph, starts with -1 for every node. The method marks
+         *              the centers of the wheels it found with 1 and their rims with 0.
          * @return
          */
-        public static int isWheelCenter(Graph graph, Node node) {
-            if(node.getValue() == 0) {
+        public static int isWheelCenter(IndexedGraph graph, int node, int[] state) {
+            if(state[node] == 0) {
                 return -1;
-            } else if(node.getValue() == 1) {
-                return graph.getEdges(node.getId()).size();
+            } else if(state[node] == 1) {
+                return graph.getDegree(node);
             }
 
 
-            Map<Integer, Node.Edge> neighbours = graph.getEdges(node.getId());
             int i = 0;
-            for(Node.Edge e : neighbours.values()) {
-                Node n = e.getTo();
-                if(n.getValue() != 1) {
-                    for (int a : graph.getEdges(n.getId()).keySet()) {
-                        if (n.getId() != a && neighbours.containsKey(a)) {
+            final int degree = graph.getDegree(node);
+            for(int j = 0; j < degree; j++) {
+                final int n = graph.getNeighbour(node, j);
+                if(state[n] != 1) {
+                    for (int k = 0; k < graph.getDegree(n); k++) {
+                        final int a = graph.getNeighbour(n, k);
+                        if (n != a && graph.hasEdge(node, a)) {
                             i++;
                         }
                     }
                 }
             }
 
-            if(i / 2 == neighbours.size()) {
-                neighbours.forEach((id, e) -> e.getTo().setValue(0));
-                node.setValue(1);
-                return neighbours.size();
+            if(i / 2 == degree) {
+                for(int j = 0; j < degree; j++) {
+                    state[graph.getNeighbour(node, j)] = 0;
+                }
+                state[node] = 1;
+                return degree;
             }
             return -1;
         }
@@ -288,12 +415,21 @@ public class GraphStructures {
             // "Therefore a biconnected graph has no articulation vertices."
 
             /**
-             * Checks if the graph is 2-connected by looking for artticulation vertices.
+             * Checks if the graph is 2-connected, see {@link #check(IndexedGraph)}.
              * @param graph
              * @return True, if it is 2-connected, otherwise false.
              */
             public static boolean check(Graph graph) {
-               return Points.check(graph).isEmpty();
+               return check(graph.toCompactGraph());
+            }
+
+            /**
+             * Checks if the graph is 2-connected, i.e. it is connected and has no articulation vertices.
+             * @param graph
+             * @return True, if it is 2-connected, otherwise false.
+             */
+            public static boolean check(IndexedGraph graph) {
+                return Test.isConnected(graph) && Points.getArticulationPoints(graph).length == 0;
             }
 
         }
@@ -301,28 +437,24 @@ public class GraphStructures {
         public static class OneConnectivity {
 
             /**
-             * Checks if the graph is one-connected by 'removing' one node at a time and checking if the graph is
-             * is still connected.
+             * Checks if the graph is one-connected, so if there is a node that disconnects the graph when it gets
+             * removed (or if it is not connected in the first place).
              * @param graph
              * @return True, if the graph is one-connected.
              */
             public static boolean check(Graph graph) {
-                List<Node> nodes = new LinkedList<>(graph.getNodes().values());
-                for(int i = 0; i < nodes.size(); i++) {
-                    graph.reset();
-
-                    Node n = nodes.get(i);
-                    n.setValue(0);
+                final CompactGraph compact = graph.toCompactGraph();
+                return !Test.isConnected(compact) || check(compact);
+            }
 
-                    if(i == nodes.size() - 1) {
-                        if(!Test.isConnected(graph, nodes.get(i - 1))) {
-                            return true;
-                        }
-                    } else if(!Test.isConnected(graph, nodes.get(i + 1))) {
-                        return true;
-                    }
-                }
-                return false;
+            /**
+             * Checks if the graph is one-connected, so if there is at least one node that disconnects the graph when
+             * it gets removed. The graph is expected to be connected.
+             * @param graph
+             * @return True, if the graph is one-connected.
+             */
+            public static boolean check(IndexedGraph graph) {
+                return Points.getArticulationPoints(graph).length > 0;
             }
 
         }
@@ -330,165 +462,105 @@ public class GraphStructures {
         public static class Points {
 
             /**
-             * Finds articulations points in a graph. This is  the same exact algorithm used as in {@link TwoConnectivity}
-             * and full credit goes to the author of the code linked above from Princeton. - I have made only made
-             * slight modifications to make it work with our graph structure.
+             * Finds articulations points in a graph. The algorithm is based on the code linked above from Princeton,
+             * see {@link #getArticulationPoints(IndexedGraph)}.
              * @param graph
-             * @return
+             * @return The articulation points, empty if the graph is not connected.
              */
             public static Set<Node> check(Graph graph) {
-                if (!GraphStructures.Test.isConnected(graph)) {
-                    return new HashSet<>();
-                }
-
-                graph.reset();
-                Map<Integer, Integer> low = new HashMap<>();
-                Set<Node> points = new HashSet<>();
-
-                for (Node n : graph.getNodes().values()) {
-                    low.put(n.getId(), -1);
-                }
-
-                for (Node n : graph.getNodes().values()) {
-                    if (n.getValue() == -1) {
-                        dfs(graph, n, n, low, points);
-                    }
-                }
-
-                return points;
-            }
-
-            private static void dfs(Graph graph, Node u, Node v, Map<Integer, Integer> low, Set<Node> points) {
-                final Node pre = graph.getNextAvailableNode(u);
-                if(pre == null) {
-                    return;
-                }
-
-                int children = 0;
-
-                boolean isArticulation = false;
-                v.setValue(pre.getId());
-                low.put(v.getId(), pre.getId());
-
-                for (Node w : graph.getNeighbours(v)) {
-                    if (w.getValue() == -1) {
-                        children++;
-                        dfs(graph, v, w, low, points);
-
-                        // update low number
-                        low.put(v.getId(), Math.min(low.get(v.getId()), low.get(w.getId())));
-
-                        // non-root of DFS is an articulation point if low[w] >= pre[v]
-                        if (low.get(w.getId()) >= v.getValue() && u != v) {
-                            points.add(v);
-                        }
-                    }
-
-                    // update low number - ignore reverse of edge leading to v
-                    else if (w != u) {
-                        low.put(v.getId(), Math.min(low.get(v.getId()), w.getValue()));
-                    }
-                }
-
-                // root of DFS is an articulation point if it has more than 1 child
-                if(u == v && children > 1) {
-                    points.add(v);
-                }
-
+                return getArticulationPoints(graph);
             }
 
             //---
             public static Set<Node> getArticulationPoints(Graph g) {
 
-                if(!GraphStructures.Test.isConnected(g)) {
+                final CompactGraph compact = g.toCompactGraph();
+                if(!GraphStructures.Test.isConnected(compact)) {
                     return new HashSet<>();
                 }
 
-                g.reset();
-                Map<Integer, Integer> low = new HashMap<>();
-                Map<Integer, Integer> parent = new HashMap<>();
                 Set<Node> articulationPoints = new HashSet<>();
-
-                getArticulationPoints(g, g.getNode(g.getMinNodeId()), 0, articulationPoints, low, parent);
-                //sarticulationPoints = getArticulationPoints(g, g.getNode(g.getMinNodeId()));
+                for(int v : getArticulationPoints(compact)) {
+                    articulationPoints.add(g.getNode(compact.getId(v)));
+                }
                 return articulationPoints;
             }
 
-            private static Set<Node> getArticulationPoints(Graph g, Node i) {
-
-                Map<Integer, Integer> low = new HashMap<>();
-                Map<Integer, Integer> depth = new HashMap<>();
-                Map<Integer, Integer> parent = new HashMap<>();
-                Set<Node> articulationPoints = new HashSet<>();
-
-                int d = 0;
-                Stack<Node> actual = new Stack<>();
-                Stack<Node> visit = new Stack<>();
-                visit.add(i);
-                while (!visit.isEmpty()) {
-                    Node n= visit.pop();
-                    n.setValue(0);
-                    actual.push(n);
-                    depth.put(n.getId(), d);
-                    low.put(i.getId(), d);
-                    d++;
-                    visit.addAll(g.getNeighbours(n).stream().filter(e -> e.getValue() == -1).collect(Collectors.toList()));
-                }
-
-                while (!actual.isEmpty()) {
-                    Node n = actual.pop();
-                    n.setValue(0);
-
-                    int childCount = 0;
-                    boolean isArticulation = false;
-
-                    for(Node ni : g.getNeighbours(i)) {
-                        if(ni.getValue() == -1) {
-                            parent.put(ni.getId(), i.getId());
-                            childCount++;
-                            if(low.get(ni.getId()) >= depth.get(i.getId())) {
-                                isArticulation = true;
+            /**
+             * Finds all articulation points in all components of the graph. The DFS keeps its path in a stack of
+             * node indices instead of recursing, so long path-like components do not overflow the call stack.
+             * @param graph
+             * @return The indices of the articulation points, ascending.
+             */
+            public static int[] getArticulationPoints(IndexedGraph graph) {
+                final int n = graph.size();
+                int[] depth = new int[n];
+                int[] low = new int[n];
+                boolean[] articulation = new boolean[n];
+                Arrays.fill(depth, -1);
+
+                //--- the path from the root to the current node, and for every node on it the index of the next
+                // neighbour to look at
+                int[] stack = new int[n];
+                int[] next = new int[n];
+
+                for(int root = 0; root < n; root++) {
+                    if(depth[root] != -1) continue;
+
+                    int top = 0;
+                    stack[0] = root;
+                    next[root] = 0;
+                    depth[root] = 0;
+                    low[root] = 0;
+                    int rootChildren = 0;
+
+                    while (top >= 0) {
+                        final int node = stack[top];
+                        final int parent = top > 0 ? stack[top - 1] : -1;
+
+                        if(next[node] < graph.getDegree(node)) {
+                            final int ni = graph.getNeighbour(node, next[node]++);
+                            if(depth[ni] == -1) {
+                                if(parent == -1) {
+                                    rootChildren++;
+                                }
+                                depth[ni] = top + 1;
+                                low[ni] = top + 1;
+                                next[ni] = 0;
+                                stack[++top] = ni;
+                            } else if(ni != parent) {
+                                low[node] = Math.min(low[node], depth[ni]);
+                            }
+                        } else {
+                            //--- all neighbours are done, so we return to the parent
+                            top--;
+                            if(parent != -1) {
+                                if(low[node] >= depth[parent] && top > 0) {
+                                    articulation[parent] = true;
+                                }
+                                low[parent] = Math.min(low[parent], low[node]);
                             }
-                            low.put(i.getId(), Math.min(low.get(i.getId()), low.get(ni.getId())));
-                        } else if(ni.getId() != parent.getOrDefault(i.getId(), ni.getId() + 1)) {
-                            low.put(i.getId(), Math.min(low.get(i.getId()), depth.get(ni.getId())));
                         }
                     }
 
-                    if((parent.containsKey(i.getId()) && isArticulation) || (!parent.containsKey(i.getId()) && childCount > 1)) {
-                        articulationPoints.add(i);
+                    if(rootChildren > 1) {
+                        articulation[root] = true;
                     }
                 }
 
-                return articulationPoints;
-
-            }
-
-            private static void getArticulationPoints(Graph graph, Node node, int d, Set<Node> articulationPoints, Map<Integer, Integer> low, Map<Integer, Integer> parent) {
-
-                node.setValue(d);
-                low.put(node.getId(), d);
-
-                int childCount = 0;
-                boolean isArticulation = false;
-
-                for(Node ni : graph.getNeighbours(node)) {
-                    if(ni.getValue() == -1) {
-                        parent.put(ni.getId(), node.getId());
-                        getArticulationPoints(graph, ni, d + 1, articulationPoints, low, parent);
-                        childCount++;
-                        if(low.get(ni.getId()) >= node.getValue()) {
-                            isArticulation = true;
-                        }
-                        low.put(node.getId(), Math.min(low.get(node.getId()), low.get(ni.getId())));
-                    } else if(ni.getId() != parent.getOrDefault(node.getId(), ni.getId() + 1)) {
-                        low.put(node.getId(), Math.min(low.get(node.getId()), ni.getValue()));
-                    }
+                int count = 0;
+                for(boolean b : articulation) {
+                    if(b) count++;
                 }
 
-                if((parent.containsKey(node.getId()) && isArticulation) || (!parent.containsKey(node.getId()) && childCount > 1)) {
-                    articulationPoints.add(node);
+                int[] points = new int[count];
+                count = 0;
+                for(int v = 0; v < n; v++) {
+                    if(articulation[v]) {
+                        points[count++] = v;
+                    }
                 }
+                return points;
             }
         }
 
@@ -0,0 +1,65 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * Read access to a graph whose nodes are indexed with the dense range 0..n-1 in ascending order of their ids and whose
+ * neighbour lists are sorted. This is all the upper bound heuristics and structure checks need, so they can run on
+ * an in-memory {@link CompactGraph} as well as on a {@link MappedGraph} that lives in a file.
+ */
+public interface IndexedGraph {
+
+    /**
+     * @return The amount of nodes in the graph.
+     */
+    int size();
+
+    /**
+     * Counts the edges the same way as {@link Graph#getEdgeCount()} does, so every undirected edge counts twice.
+     * @return The amount of directed edges.
+     */
+    long getEdgeCount();
+
+    /**
+     * @param index The dense index of the node.
+     * @return The id of the node in the original graph.
+     */
+    int getId(int index);
+
+    /**
+     * @param id The id of the node in the original graph.
+     * @return The dense index of the node, or -1 if there is no node with the given id.
+     */
+    int indexOf(int id);
+
+    /**
+     * @param v The index of the node.
+     * @return The degree of the node.
+     */
+    int getDegree(int v);
+
+    /**
+     * @return The highest degree of any node in the graph.
+     */
+    int getMaxDegree();
+
+    /**
+     * @param v The index of the node.
+     * @param i The position in the neighbour list of the node, 0 <= i < degree.
+     * @return The index of the i-th neighbour.
+     */
+    int getNeighbour(int v, int i);
+
+    /**
+     * @param u Index of the first node.
+     * @param v Index of the second node.
+     * @return True, if the nodes are neighbours, otherwise false.
+     */
+    boolean hasEdge(int u, int v);
+
+    /**
+     * @return The density of the graph, see {@link Graph#getDensity()}.
+     */
+    default double getDensity() {
+        return getEdgeCount() / Math.pow(size(), 2);
+    }
+
+}
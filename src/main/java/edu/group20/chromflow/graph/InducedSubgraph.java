@@ -0,0 +1,279 @@
+package edu.group20.chromflow.graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A read-only view of the subgraph of a {@link CompactGraph} that is induced by a set of its nodes. The view only
+ * stores the (sorted) indices of its nodes in the parent graph and their degrees inside the view, the edges are always
+ * read from the parent. Nothing in a view or in the work on it is sized to the parent, so cutting a graph into many
+ * small pieces stays linear in the size of the pieces, and a piece only has to be copied ({@link #toCompactGraph()})
+ * once an algorithm needs it in the CSR form.
+ */
+public final class InducedSubgraph {
+
+    private final CompactGraph parent;
+    private final int[] vertices;
+    private final int[] degrees;
+    private final int edgeCount;
+
+    private final Graph.Meta meta = new Graph.Meta();
+
+    private InducedSubgraph(CompactGraph parent, int[] vertices) {
+        this.parent = parent;
+        this.vertices = vertices;
+        this.degrees = new int[vertices.length];
+
+        int edges = 0;
+        for(int i = 0; i < vertices.length; i++) {
+            final int v = vertices[i];
+            int degree = 0;
+            for(int j = parent.offsets[v]; j < parent.offsets[v + 1]; j++) {
+                if(contains(parent.neighbours[j])) {
+                    degree++;
+                }
+            }
+            this.degrees[i] = degree;
+            edges += degree;
+        }
+        this.edgeCount = edges;
+    }
+
+    /**
+     * @param graph The graph.
+     * @return A view that contains the whole graph.
+     */
+    public static InducedSubgraph of(CompactGraph graph) {
+        int[] vertices = new int[graph.size()];
+        for(int v = 0; v < vertices.length; v++) {
+            vertices[v] = v;
+        }
+        return new InducedSubgraph(graph, vertices);
+    }
+
+    /**
+     * Creates a view of the same parent graph that only contains the given nodes.
+     * @param vertices The indices of the nodes in the parent graph, sorted ascending, the array is not copied.
+     * @return Never null.
+     */
+    public InducedSubgraph induce(int[] vertices) {
+        return new InducedSubgraph(this.parent, vertices);
+    }
+
+    /**
+     * @return The graph this is a view of.
+     */
+    public CompactGraph getParent() {
+        return this.parent;
+    }
+
+    /**
+     * See {@link Graph#getMeta()}.
+     * @return Never null.
+     */
+    public Graph.Meta getMeta() {
+        return this.meta;
+    }
+
+    /**
+     * @return The amount of nodes in the view.
+     */
+    public int size() {
+        return this.vertices.length;
+    }
+
+    /**
+     * @return The amount of edges in the view, counted in both directions like {@link Graph#getEdgeCount()}.
+     */
+    public int getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * @return The density of the view, see {@link Graph#getDensity()}.
+     */
+    public double getDensity() {
+        return getEdgeCount() / Math.pow(size(), 2);
+    }
+
+    /**
+     * @param position The position of the node in the view, 0 <= position < size.
+     * @return The index of the node in the parent graph.
+     */
+    public int getVertex(int position) {
+        return this.vertices[position];
+    }
+
+    /**
+     * @param position The position of the node in the view.
+     * @return The degree of the node inside of the view.
+     */
+    public int getDegree(int position) {
+        return this.degrees[position];
+    }
+
+    /**
+     * @param v The index of a node in the parent graph.
+     * @return True, if the node is part of the view.
+     */
+    public boolean contains(int v) {
+        return position(v) >= 0;
+    }
+
+    /**
+     * @param v The index of a node in the parent graph.
+     * @return The position of the node in the view, negative if it is not part of it.
+     */
+    private int position(int v) {
+        return isFull() ? v : Arrays.binarySearch(this.vertices, v);
+    }
+
+    /**
+     * @return True, if the view contains all nodes of the parent graph.
+     */
+    public boolean isFull() {
+        return this.vertices.length == this.parent.size();
+    }
+
+    /**
+     * @return True, if every node of the view is connected to all the other nodes of the view.
+     */
+    public boolean isComplete() {
+        return getEdgeCount() == (long) size() * (size() - 1);
+    }
+
+    /**
+     * Splits the view into its connected components after removing the separator.
+     * @param separator The index of the node (in the parent graph) to remove, or -1 to not remove any node.
+     * @param keepSeparator If true, the separator is added to every component.
+     * @return The views of all the components.
+     */
+    public List<InducedSubgraph> split(int separator, boolean keepSeparator) {
+        List<InducedSubgraph> components = new LinkedList<>();
+
+        //--- the nodes are tracked by their position in the view, and every component only gets an array of its size
+        final int n = this.vertices.length;
+        boolean[] visited = new boolean[n];
+        if(separator != -1 && position(separator) >= 0) {
+            visited[position(separator)] = true;
+        }
+
+        int[] stack = new int[n];
+        int[] component = new int[n];
+        for(int start = 0; start < n; start++) {
+            if(visited[start]) continue;
+            int componentSize = 0;
+            boolean touchesSeparator = false;
+
+            int size = 0;
+            stack[size++] = start;
+            visited[start] = true;
+            while (size > 0) {
+                final int v = this.vertices[stack[--size]];
+                component[componentSize++] = v;
+                for(int i = this.parent.offsets[v]; i < this.parent.offsets[v + 1]; i++) {
+                    final int w = this.parent.neighbours[i];
+                    final int position = position(w);
+                    if(w == separator) {
+                        touchesSeparator = true;
+                    } else if(position >= 0 && !visited[position]) {
+                        visited[position] = true;
+                        stack[size++] = position;
+                    }
+                }
+            }
+
+            if(keepSeparator && touchesSeparator) {
+                component[componentSize++] = separator;
+            }
+            final int[] vertices = Arrays.copyOf(component, componentSize);
+            Arrays.sort(vertices);
+            components.add(induce(vertices));
+        }
+
+        return components;
+    }
+
+    /**
+     * Removes nodes with a degree <= 1 until there are none left.
+     * @return A view without the removed nodes, or this view if there was nothing to remove.
+     */
+    public InducedSubgraph removeSingles() {
+        final int n = this.vertices.length;
+        int[] degrees = this.degrees.clone();
+        boolean[] removed = new boolean[n];
+        int[] stack = new int[n];
+        int size = 0;
+
+        for(int i = 0; i < n; i++) {
+            if(degrees[i] <= 1) {
+                stack[size++] = i;
+                removed[i] = true;
+            }
+        }
+        if(size == 0) {
+            return this;
+        }
+
+        int remaining = n;
+        while (size > 0) {
+            final int i = stack[--size];
+            remaining--;
+
+            final int v = this.vertices[i];
+            for(int j = this.parent.offsets[v]; j < this.parent.offsets[v + 1]; j++) {
+                final int w = this.parent.neighbours[j];
+                if(!contains(w)) continue;
+
+                final int position = Arrays.binarySearch(this.vertices, w);
+                if(!removed[position] && --degrees[position] <= 1) {
+                    removed[position] = true;
+                    stack[size++] = position;
+                }
+            }
+        }
+
+        int[] vertices = new int[remaining];
+        int index = 0;
+        for(int i = 0; i < n; i++) {
+            if(!removed[i]) {
+                vertices[index++] = this.vertices[i];
+            }
+        }
+        return induce(vertices);
+    }
+
+    /**
+     * Materialises the view as its own CSR graph.
+     * @return The parent graph if the view contains all its nodes, otherwise a compact copy of the view.
+     */
+    public CompactGraph toCompactGraph() {
+        if(isFull()) {
+            return this.parent;
+        }
+
+        final int n = this.vertices.length;
+        int[] ids = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] neighbours = new int[this.edgeCount];
+
+        for(int i = 0; i < n; i++) {
+            final int v = this.vertices[i];
+            ids[i] = this.parent.ids[v];
+            offsets[i + 1] = offsets[i] + this.degrees[i];
+
+            int position = offsets[i];
+            for(int j = this.parent.offsets[v]; j < this.parent.offsets[v + 1]; j++) {
+                final int w = this.parent.neighbours[j];
+                if(contains(w)) {
+                    // the parent rows and the vertices are both sorted, so the row stays sorted
+                    neighbours[position++] = Arrays.binarySearch(this.vertices, w);
+                }
+            }
+        }
+
+        return new CompactGraph(ids, offsets, neighbours);
+    }
+
+}
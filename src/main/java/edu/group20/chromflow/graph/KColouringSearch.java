@@ -0,0 +1,236 @@
+package edu.group20.chromflow.graph;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests if a graph can be coloured with k colours by colouring the nodes in a fixed order. All the state lives in
+ * arrays that are allocated once, so the search itself does not allocate anything. For every node we count how often
+ * each colour is used by its neighbours, and how many colours it has left. Both get updated when a node gets coloured
+ * or uncoloured, so checking if a colour is available costs O(1), and the search backtracks as soon as an uncoloured
+ * node has no colour left (forward checking) instead of only noticing it once it gets to that node.
+ *
+ * Colourings that only differ by a permutation of the colours are all the same to us, so the search only explores one
+ * of them: a node may only open one new colour, the one right after the highest colour used so far. The nodes of a
+ * clique need different colours anyway, so they get coloured first with the colours 0, 1, ... and are never changed.
+ *
+ * The search does not recurse, it keeps the next colour to try for every position of the order in a stack, so the
+ * size of the graph is not limited by the call stack. Because all of its state lives in the fields, the search can
+ * also be run in steps with {@link #step(long)}, and be inspected in between.
+ */
+final class KColouringSearch implements ColouringTest {
+
+    private final static long CANCELLATION_CHECK = 1 << 12;
+
+    private final CompactGraph graph;
+    private final int[] order;
+    private final int colours;
+
+    /**
+     * The colour of every node, -1 if it is not coloured yet.
+     */
+    private final int[] colouring;
+    /**
+     * forbidden[v * colours + c] is the amount of neighbours of v with the colour c.
+     */
+    private final int[] forbidden;
+    /**
+     * The amount of colours that no neighbour of the node uses.
+     */
+    private final int[] options;
+
+    /**
+     * next[p] is the first colour that has not been tried yet for the node at the position p of the order.
+     */
+    private final int[] next;
+    /**
+     * used[p] is the amount of colours used by the nodes before the position p of the order.
+     */
+    private final int[] used;
+    /**
+     * The amount of nodes at the start of the order that are precoloured, the search never goes back past them.
+     */
+    private final int fixed;
+    /**
+     * The position in the order of the node that gets coloured next, all nodes before it are coloured.
+     */
+    private int position = 0;
+    /**
+     * Null while the search is running, afterwards whether or not the graph can be coloured.
+     */
+    private Boolean colourable = null;
+
+    /**
+     * @param graph The graph to colour.
+     * @param order The indices of all the nodes in the order they get coloured.
+     * @param clique The indices of the nodes of a clique, they get coloured before all other nodes.
+     * @param colours The amount of colours.
+     */
+    KColouringSearch(CompactGraph graph, int[] order, int[] clique, int colours) {
+        final int n = graph.size();
+        this.graph = graph;
+        this.order = withCliqueFirst(order, clique, n);
+        this.colours = colours;
+        this.colouring = new int[n];
+        this.forbidden = new int[n * Math.max(0, colours)];
+        this.options = new int[n];
+        this.next = new int[order.length + 1];
+        this.used = new int[order.length + 1];
+        this.fixed = clique.length;
+        for(int v = 0; v < n; v++) {
+            this.colouring[v] = -1;
+            this.options[v] = colours;
+        }
+
+        if(colours <= 0) {
+            this.colourable = order.length == 0;
+        } else if(clique.length > colours) {
+            this.colourable = false;
+        } else {
+            for(int i = 0; i < clique.length; i++) {
+                if(!assign(clique[i], i)) {
+                    this.colourable = false;
+                }
+                this.used[i + 1] = i + 1;
+            }
+            this.position = clique.length;
+        }
+    }
+
+    /**
+     * @return The order with the nodes of the clique moved to the start.
+     */
+    private static int[] withCliqueFirst(int[] order, int[] clique, int n) {
+        if(clique.length == 0) {
+            return order;
+        }
+
+        boolean[] inClique = new boolean[n];
+        int[] result = new int[order.length];
+        for(int i = 0; i < clique.length; i++) {
+            inClique[clique[i]] = true;
+            result[i] = clique[i];
+        }
+        int size = clique.length;
+        for(int v : order) {
+            if(!inClique[v]) {
+                result[size++] = v;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs the search until it is finished.
+     * @param token Gets checked every {@link #CANCELLATION_CHECK} search nodes.
+     * @return True, if the graph can be coloured with the amount of colours.
+     * @throws CancellationException If the token gets cancelled or the thread gets interrupted.
+     */
+    @Override
+    public boolean run(CancellationToken token) {
+        while (!step(CANCELLATION_CHECK)) {
+            token.check();
+        }
+        return this.colourable;
+    }
+
+    /**
+     * Continues the search for a limited amount of search nodes.
+     * @param nodes The maximum amount of colours to try.
+     * @return True, if the search is finished, see {@link #isColourable()}.
+     */
+    @Override
+    public boolean step(long nodes) {
+        while (this.colourable == null && nodes-- > 0) {
+            if(this.position == this.order.length) {
+                this.colourable = true;
+                break;
+            }
+
+            final int node = this.order[this.position];
+            final int base = node * this.colours;
+
+            //--- at most one new colour
+            final int limit = Math.min(this.colours, this.used[this.position] + 1);
+            int c = this.next[this.position];
+            while (c < limit && this.forbidden[base + c] != 0) {
+                c++;
+            }
+
+            if(c >= limit) {
+                //--- no colour left, so we go back to the previous node and try its next colour
+                this.next[this.position] = 0;
+                if(--this.position < this.fixed) {
+                    this.position = this.fixed;
+                    this.colourable = false;
+                    break;
+                }
+                final int previous = this.order[this.position];
+                unassign(previous, this.colouring[previous]);
+                continue;
+            }
+
+            this.next[this.position] = c + 1;
+            if(assign(node, c)) {
+                this.used[this.position + 1] = Math.max(this.used[this.position], c + 1);
+                this.position++;
+            } else {
+                unassign(node, c);
+            }
+        }
+        return this.colourable != null;
+    }
+
+    /**
+     * @return True, if the search is finished and found a colouring. False, if it is finished and there is none.
+     * Null, if it is not finished yet.
+     */
+    @Override
+    public Boolean isColourable() {
+        return this.colourable;
+    }
+
+    /**
+     * @return The amount of nodes at the start of the order that are currently coloured.
+     */
+    int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * @return The colouring (colours 0, 1, ...) if the search found one, while it is running the partial colouring
+     * (-1 for uncoloured nodes).
+     */
+    @Override
+    public int[] getColouring() {
+        return this.colouring;
+    }
+
+    /**
+     * Colours the node and updates its neighbours.
+     * @return False, if an uncoloured neighbour has no colour left afterwards.
+     */
+    private boolean assign(int node, int colour) {
+        this.colouring[node] = colour;
+
+        boolean possible = true;
+        for(int i = this.graph.offsets[node]; i < this.graph.offsets[node + 1]; i++) {
+            final int neighbour = this.graph.neighbours[i];
+            if(this.forbidden[neighbour * this.colours + colour]++ == 0 && --this.options[neighbour] == 0 &&
+                    this.colouring[neighbour] == -1) {
+                possible = false;
+            }
+        }
+        return possible;
+    }
+
+    private void unassign(int node, int colour) {
+        this.colouring[node] = -1;
+        for(int i = this.graph.offsets[node]; i < this.graph.offsets[node + 1]; i++) {
+            final int neighbour = this.graph.neighbours[i];
+            if(--this.forbidden[neighbour * this.colours + colour] == 0) {
+                this.options[neighbour]++;
+            }
+        }
+    }
+
+}
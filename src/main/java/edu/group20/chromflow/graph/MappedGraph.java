@@ -0,0 +1,291 @@
+package edu.group20.chromflow.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A graph in CSR form (see {@link CompactGraph}) that is stored in a file and memory-mapped instead of being loaded
+ * into the heap, so the size of the heap does not depend on the amount of edges. The operating system pages the
+ * parts of the file in that are read, and a file that got written once can be opened again without any parsing.
+ *
+ * The file starts with a header (magic, version, n, max degree, amount of directed edges m, flags) followed by the ids
+ * (n ints), the offsets (n + 1 longs), the neighbours (m ints) and, if the flags say so, a colouring (n ints). Every
+ * section starts at a multiple of 8 bytes. Version 1 files have no flags and no colouring.
+ */
+public final class MappedGraph implements IndexedGraph {
+
+    private final static int MAGIC = 0x43464D47; // "CFMG"
+    private final static int VERSION = 2;
+    private final static int HEADER_SIZE = 32;
+    private final static int VERSION_1_HEADER_SIZE = 24;
+
+    private final static int FLAG_COLOURING = 1;
+
+    /**
+     * A single buffer can only map up to 2GB, so the file gets mapped in segments of 1GB. The size of a segment is a
+     * multiple of 8, so no int or long that is aligned to its size is ever split between two segments.
+     */
+    private final static int SEGMENT_SHIFT = 30;
+    private final static long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final int size;
+    private final int maxDegree;
+    private final long edgeCount;
+
+    private final long idsStart;
+    private final long offsetsStart;
+    private final long neighboursStart;
+    private final long colouringStart;
+
+    private MappedGraph(ByteBuffer[] segments) throws IOException {
+        this.segments = segments;
+
+        if(segments.length == 0 || segments[0].capacity() < HEADER_SIZE || getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped graph file.");
+        }
+        final int version = getInt(4);
+        if(version != 1 && version != VERSION) {
+            throw new IOException(String.format("Unsupported mapped graph version %d.", version));
+        }
+
+        this.size = getInt(8);
+        this.maxDegree = getInt(12);
+        this.edgeCount = getLong(16);
+        final int flags = version == 1 ? 0 : getInt(24);
+
+        this.idsStart = version == 1 ? VERSION_1_HEADER_SIZE : HEADER_SIZE;
+        this.offsetsStart = align(this.idsStart + 4L * this.size);
+        this.neighboursStart = align(this.offsetsStart + 8L * (this.size + 1));
+        final long neighboursEnd = align(this.neighboursStart + 4L * this.edgeCount);
+        this.colouringStart = (flags & FLAG_COLOURING) != 0 ? neighboursEnd : -1;
+
+        long length = 0;
+        for(ByteBuffer segment : segments) {
+            length += segment.capacity();
+        }
+        if(length < (hasColouring() ? this.colouringStart + 4L * this.size : this.neighboursStart + 4L * this.edgeCount)) {
+            throw new IOException("The mapped graph file is truncated.");
+        }
+    }
+
+    /**
+     * Maps the graph stored in the file. The file is only read when the graph is accessed, and it must not be changed
+     * while the graph is in use.
+     * @param path The file, written by {@link #write(IndexedGraph, int[], Path)}.
+     * @return Never null.
+     * @throws IOException If the file can not be read or is not a mapped graph.
+     */
+    public static MappedGraph open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            ByteBuffer[] segments = new ByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for(int i = 0; i < segments.length; i++) {
+                final long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, length - start));
+            }
+            // the mappings stay valid after the channel is closed
+            return new MappedGraph(segments);
+        }
+    }
+
+    /**
+     * Writes the graph into a file that can be opened with {@link #open(Path)}.
+     * @param graph The graph to write.
+     * @param path The file, it gets replaced if it already exists.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(IndexedGraph graph, Path path) throws IOException {
+        write(graph, null, path);
+    }
+
+    /**
+     * Writes the graph and a colouring of it into a file that can be opened with {@link #open(Path)}.
+     * @param graph The graph to write.
+     * @param colouring The colour of every node (by index), or null to not store a colouring.
+     * @param path The file, it gets replaced if it already exists.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(IndexedGraph graph, int[] colouring, Path path) throws IOException {
+        final int n = graph.size();
+        if(colouring != null && colouring.length != n) {
+            throw new IllegalArgumentException("The colouring needs a colour for every node.");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            long position = writeHeader(out, n, graph.getMaxDegree(), graph.getEdgeCount(), colouring != null);
+            for(int v = 0; v < n; v++) {
+                out.writeInt(graph.getId(v));
+            }
+            position = pad(out, position + 4L * n);
+
+            long offset = 0;
+            out.writeLong(offset);
+            for(int v = 0; v < n; v++) {
+                offset += graph.getDegree(v);
+                out.writeLong(offset);
+            }
+            position = pad(out, position + 8L * (n + 1));
+
+            for(int v = 0; v < n; v++) {
+                final int degree = graph.getDegree(v);
+                for(int i = 0; i < degree; i++) {
+                    out.writeInt(graph.getNeighbour(v, i));
+                }
+            }
+
+            if(colouring != null) {
+                pad(out, position + 4L * graph.getEdgeCount());
+                for(int colour : colouring) {
+                    out.writeInt(colour);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True, if the file contains a colouring.
+     */
+    public boolean hasColouring() {
+        return this.colouringStart != -1;
+    }
+
+    /**
+     * @param v The index of the node.
+     * @return The colour of the node in the stored colouring, see {@link #hasColouring()}.
+     */
+    public int getColour(int v) {
+        if(!hasColouring()) {
+            throw new IllegalStateException("The file does not contain a colouring.");
+        }
+        return getInt(this.colouringStart + 4L * v);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    @Override
+    public int getId(int index) {
+        return getInt(this.idsStart + 4L * index);
+    }
+
+    @Override
+    public int indexOf(int id) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int value = getId(middle);
+            if(value < id) {
+                low = middle + 1;
+            } else if(value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getDegree(int v) {
+        return (int) (getOffset(v + 1) - getOffset(v));
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    @Override
+    public int getNeighbour(int v, int i) {
+        return getInt(this.neighboursStart + 4L * (getOffset(v) + i));
+    }
+
+    /**
+     * Runs a binary search on the neighbours of the node with the smaller degree.
+     * @param u Index of the first node.
+     * @param v Index of the second node.
+     * @return True, if the nodes are neighbours, otherwise false.
+     */
+    @Override
+    public boolean hasEdge(int u, int v) {
+        if(getDegree(u) > getDegree(v)) {
+            final int tmp = u;
+            u = v;
+            v = tmp;
+        }
+
+        long low = getOffset(u);
+        long high = getOffset(u + 1) - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final int value = getInt(this.neighboursStart + 4L * middle);
+            if(value < v) {
+                low = middle + 1;
+            } else if(value > v) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getOffset(int v) {
+        return getLong(this.offsetsStart + 8L * v);
+    }
+
+    private int getInt(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    private long getLong(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Writes the header of the file, the sections have to follow in the order described above.
+     * @return The size of the header.
+     */
+    static long writeHeader(DataOutputStream out, int n, int maxDegree, long edgeCount, boolean colouring) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(n);
+        out.writeInt(maxDegree);
+        out.writeLong(edgeCount);
+        out.writeInt(colouring ? FLAG_COLOURING : 0);
+        out.writeInt(0);
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Fills the current section up to the next multiple of 8 bytes.
+     * @return The position of the next section.
+     */
+    static long pad(DataOutputStream out, long position) throws IOException {
+        final long aligned = align(position);
+        for(long i = position; i < aligned; i++) {
+            out.writeByte(0);
+        }
+        return aligned;
+    }
+
+}
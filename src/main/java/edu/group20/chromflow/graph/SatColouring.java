@@ -0,0 +1,132 @@
+package edu.group20.chromflow.graph;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests if a graph can be coloured with k colours with the {@link SatSolver}. The variable v * k + c is true if the
+ * node v has the colour c. Every node needs at least one colour, and the two ends of an edge can not have the same
+ * one. A node with more than one true variable can take any of them, so there are no clauses for at most one colour.
+ *
+ * Colourings that only differ by a permutation of the colours are the same to us, so the nodes of the clique get the
+ * colours 0, 1, ... up front as unit clauses, like in {@link KColouringSearch}. The solver picks the nodes that come
+ * first in the order first, until the learned clauses take over.
+ */
+final class SatColouring implements ColouringTest {
+
+    private final static long CANCELLATION_CHECK = 1 << 8;
+
+    private final int n;
+    private final int colours;
+    private final SatSolver solver;
+
+    private Boolean colourable = null;
+    private int[] colouring = null;
+
+    /**
+     * @param graph The graph to colour.
+     * @param order The indices of all the nodes, the ones at the start get coloured first.
+     * @param clique The indices of the nodes of a clique, they get different colours up front.
+     * @param colours The amount of colours.
+     */
+    SatColouring(CompactGraph graph, int[] order, int[] clique, int colours) {
+        this.n = graph.size();
+        this.colours = colours;
+
+        if(colours <= 0 || clique.length > colours) {
+            this.solver = null;
+            this.colourable = this.n == 0;
+            return;
+        }
+
+        this.solver = new SatSolver(this.n * colours);
+        for(int v = 0; v < this.n; v++) {
+            final int[] clause = new int[colours];
+            for(int c = 0; c < colours; c++) {
+                clause[c] = SatSolver.literal(variable(v, c), true);
+            }
+            this.solver.addClause(clause);
+
+            for(int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+                final int w = graph.neighbours[i];
+                if(v < w) {
+                    for(int c = 0; c < colours; c++) {
+                        this.solver.addClause(SatSolver.literal(variable(v, c), false), SatSolver.literal(variable(w, c), false));
+                    }
+                }
+            }
+        }
+
+        for(int i = 0; i < clique.length; i++) {
+            this.solver.addClause(SatSolver.literal(variable(clique[i], i), true));
+        }
+
+        for(int p = 0; p < order.length; p++) {
+            final double priority = (order.length - p) / (double) order.length;
+            for(int c = 0; c < colours; c++) {
+                this.solver.setPriority(variable(order[p], c), priority);
+            }
+        }
+    }
+
+    private int variable(int node, int colour) {
+        return node * this.colours + colour;
+    }
+
+    /**
+     * Runs the solver until it is finished.
+     * @param token Gets checked every {@link #CANCELLATION_CHECK} conflicts.
+     * @return True, if the graph can be coloured with the amount of colours.
+     * @throws CancellationException If the token gets cancelled or the thread gets interrupted.
+     */
+    @Override
+    public boolean run(CancellationToken token) {
+        while (!step(CANCELLATION_CHECK)) {
+            token.check();
+        }
+        return this.colourable;
+    }
+
+    /**
+     * Continues the solver for a limited amount of conflicts.
+     * @param conflicts The maximum amount of conflicts.
+     * @return True, if the test is finished, see {@link #isColourable()}.
+     */
+    @Override
+    public boolean step(long conflicts) {
+        if(this.colourable == null && this.solver.step(conflicts)) {
+            this.colourable = this.solver.isSatisfiable();
+            if(this.colourable) {
+                //--- the colours get renumbered in the order they show up, so no colour in between is missing
+                int[] renamed = new int[this.colours];
+                int used = 0;
+                this.colouring = new int[this.n];
+                for(int v = 0; v < this.n; v++) {
+                    int c = 0;
+                    while (!this.solver.getValue(variable(v, c))) {
+                        c++;
+                    }
+                    if(renamed[c] == 0) {
+                        renamed[c] = ++used;
+                    }
+                    this.colouring[v] = renamed[c] - 1;
+                }
+            }
+        }
+        return this.colourable != null;
+    }
+
+    @Override
+    public Boolean isColourable() {
+        return this.colourable;
+    }
+
+    /**
+     * @return The colouring (colours 0, 1, ...) if the solver found one, null otherwise. Every node gets its first
+     * true variable, so it might use less than k colours.
+     */
+    @Override
+    public int[] getColouring() {
+        return this.colouring;
+    }
+
+}
@@ -0,0 +1,597 @@
+package edu.group20.chromflow.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A SAT solver with conflict-driven clause learning, in the style of MiniSat. The solver assigns one variable after
+ * the other (the one with the highest activity, VSIDS) and propagates the clauses that became unit, using two watched
+ * literals per clause so only the clauses that watch a literal that just became false get looked at. Every conflict
+ * gets analysed down to its first unique implication point, the learned clause gets added, and the search jumps back
+ * to the level where the clause becomes unit. The search restarts after a growing amount of conflicts (Luby sequence),
+ * and the learned clauses that connect many levels (high LBD) get deleted now and then.
+ *
+ * Variables are 0, 1, ..., literals are 2 * variable for the positive and 2 * variable + 1 for the negative one, see
+ * {@link #literal(int, boolean)}. Like {@link KColouringSearch} the solver can be run in steps with
+ * {@link #step(long)}.
+ */
+final class SatSolver {
+
+    private final static byte TRUE = 1;
+    private final static byte FALSE = -1;
+    private final static byte UNASSIGNED = 0;
+
+    /**
+     * The amount of conflicts of the first restart, the others are this times the Luby sequence.
+     */
+    private final static long RESTART_BASE = 100;
+    private final static double VARIABLE_DECAY = 0.95;
+    /**
+     * Learned clauses with an LBD this small are kept forever.
+     */
+    private final static int KEPT_LBD = 2;
+    private final static int MIN_LEARNED = 1000;
+
+    private final int variables;
+
+    /**
+     * All clauses, the index is the id of the clause. Deleted clauses are null, they get dropped from the watch lists
+     * the next time a list gets looked at. The first two literals of a clause are the watched ones.
+     */
+    private final List<int[]> clauses = new ArrayList<>();
+    /**
+     * The LBD of every clause, 0 for the clauses that did not get learned.
+     */
+    private int[] lbd = new int[16];
+    /**
+     * The ids of the learned clauses that are not deleted.
+     */
+    private int[] learned = new int[16];
+    private int learnedSize = 0;
+    /**
+     * The amount of learned clauses that triggers {@link #reduce()}, a third of the clauses of the problem and then
+     * 10% more after every reduction.
+     */
+    private int maxLearned = MIN_LEARNED;
+
+    /**
+     * watches[literal] are the ids of the clauses that watch the literal.
+     */
+    private final int[][] watches;
+    private final int[] watchSizes;
+
+    /**
+     * The value of every literal.
+     */
+    private final byte[] values;
+    private final int[] level;
+    /**
+     * The clause that implied the value of the variable, -1 for decisions and the variables of level 0.
+     */
+    private final int[] reason;
+    /**
+     * The value the variable had the last time, it gets the same one when it gets picked again.
+     */
+    private final boolean[] phase;
+
+    private final int[] trail;
+    private int trailSize = 0;
+    private int propagated = 0;
+    /**
+     * trailLimits[l] is the size of the trail when the level l + 1 started.
+     */
+    private final int[] trailLimits;
+    private int decisionLevel = 0;
+
+    private final double[] activity;
+    private double increment = 1;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize = 0;
+
+    private final boolean[] seen;
+    private final int[] levelStamp;
+    private int stamp = 0;
+
+    private long restarts = 0;
+    private long conflictsUntilRestart = RESTART_BASE;
+
+    /**
+     * Null while the solver is running, afterwards whether or not the clauses are satisfiable.
+     */
+    private Boolean satisfiable = null;
+
+    /**
+     * @param variables The amount of variables.
+     */
+    SatSolver(int variables) {
+        this.variables = variables;
+        this.watches = new int[2 * variables][];
+        this.watchSizes = new int[2 * variables];
+        this.values = new byte[2 * variables];
+        this.level = new int[variables];
+        this.reason = new int[variables];
+        this.phase = new boolean[variables];
+        this.trail = new int[variables];
+        this.trailLimits = new int[variables + 1];
+        this.activity = new double[variables];
+        this.heap = new int[variables];
+        this.heapIndex = new int[variables];
+        this.seen = new boolean[variables];
+        this.levelStamp = new int[variables + 1];
+        for(int v = 0; v < variables; v++) {
+            this.reason[v] = -1;
+            this.heapIndex[v] = -1;
+            insert(v);
+        }
+        for(int l = 0; l < 2 * variables; l++) {
+            this.watches[l] = new int[4];
+        }
+    }
+
+    /**
+     * @param variable The variable.
+     * @param positive Whether the literal is the variable itself or its negation.
+     * @return The literal.
+     */
+    static int literal(int variable, boolean positive) {
+        return 2 * variable + (positive ? 0 : 1);
+    }
+
+    /**
+     * Adds a clause, only before the first call of {@link #step(long)}.
+     * @param literals The literals of the clause, one of them has to be true.
+     */
+    void addClause(int... literals) {
+        if(this.satisfiable != null) {
+            return;
+        }
+
+        //--- drop duplicates and literals that are false already, a clause with a true literal is satisfied
+        int[] clause = literals.clone();
+        Arrays.sort(clause);
+        int size = 0;
+        for(int i = 0; i < clause.length; i++) {
+            final int literal = clause[i];
+            if(this.values[literal] == TRUE || (i > 0 && clause[i - 1] == (literal ^ 1))) {
+                return;
+            }
+            if(this.values[literal] == UNASSIGNED && (size == 0 || clause[size - 1] != literal)) {
+                clause[size++] = literal;
+            }
+        }
+
+        if(size == 0) {
+            this.satisfiable = false;
+        } else if(size == 1) {
+            assign(clause[0], -1);
+            if(propagate() != -1) {
+                this.satisfiable = false;
+            }
+        } else {
+            attach(Arrays.copyOf(clause, size), 0);
+        }
+    }
+
+    /**
+     * Raises the activity of a variable before the first call of {@link #step(long)}, the variables with the highest
+     * activity get picked first.
+     * @param variable The variable.
+     * @param priority The activity, at most 1.
+     */
+    void setPriority(int variable, double priority) {
+        if(priority > this.activity[variable]) {
+            this.activity[variable] = priority;
+            up(this.heapIndex[variable]);
+        }
+    }
+
+    /**
+     * Continues the search for a limited amount of conflicts.
+     * @param conflicts The maximum amount of conflicts.
+     * @return True, if the search is finished, see {@link #isSatisfiable()}.
+     */
+    boolean step(long conflicts) {
+        while (this.satisfiable == null) {
+            final int conflict = propagate();
+            if(conflict != -1) {
+                if(this.decisionLevel == 0) {
+                    this.satisfiable = false;
+                    break;
+                }
+                learn(conflict);
+
+                if(--this.conflictsUntilRestart <= 0) {
+                    this.restarts++;
+                    this.conflictsUntilRestart = RESTART_BASE * luby(this.restarts);
+                    backtrack(0);
+                }
+                if(--conflicts <= 0) {
+                    break;
+                }
+            } else {
+                if(this.learnedSize - this.trailSize >= this.maxLearned) {
+                    reduce();
+                }
+
+                final int variable = next();
+                if(variable == -1) {
+                    this.satisfiable = true;
+                    break;
+                }
+                this.trailLimits[this.decisionLevel++] = this.trailSize;
+                assign(literal(variable, this.phase[variable]), -1);
+            }
+        }
+        return this.satisfiable != null;
+    }
+
+    /**
+     * @return True, if the search is finished and the clauses are satisfiable. False, if it is finished and they are
+     * not. Null, if it is not finished yet.
+     */
+    Boolean isSatisfiable() {
+        return this.satisfiable;
+    }
+
+    /**
+     * @param variable The variable.
+     * @return The value of the variable in the solution, only valid if the clauses are satisfiable.
+     */
+    boolean getValue(int variable) {
+        return this.values[literal(variable, true)] == TRUE;
+    }
+
+    /**
+     * Analyses the conflict, adds the learned clause and jumps back to the level where it becomes unit.
+     * @param conflict The id of the clause that is false.
+     */
+    private void learn(int conflict) {
+        //--- walk back the trail until only one literal of the current level is left (the first UIP)
+        int[] clause = new int[8];
+        int size = 1;
+        int pending = 0;
+        int literal = -1;
+        int index = this.trailSize - 1;
+        int id = conflict;
+        do {
+            final int[] c = this.clauses.get(id);
+            for(int k = literal == -1 ? 0 : 1; k < c.length; k++) {
+                final int variable = c[k] >> 1;
+                if(!this.seen[variable] && this.level[variable] > 0) {
+                    this.seen[variable] = true;
+                    bump(variable);
+                    if(this.level[variable] >= this.decisionLevel) {
+                        pending++;
+                    } else {
+                        if(size == clause.length) {
+                            clause = Arrays.copyOf(clause, size * 2);
+                        }
+                        clause[size++] = c[k];
+                    }
+                }
+            }
+            while (!this.seen[this.trail[index] >> 1]) {
+                index--;
+            }
+            literal = this.trail[index--];
+            id = this.reason[literal >> 1];
+            this.seen[literal >> 1] = false;
+            pending--;
+        } while (pending > 0);
+        clause[0] = literal ^ 1;
+
+        //--- drop the literals that are implied by the other ones
+        final int[] analysed = Arrays.copyOf(clause, size);
+        int kept = 1;
+        for(int i = 1; i < size; i++) {
+            if(!isImplied(analysed[i])) {
+                clause[kept++] = analysed[i];
+            }
+        }
+        for(int i = 1; i < size; i++) {
+            this.seen[analysed[i] >> 1] = false;
+        }
+        size = kept;
+
+        //--- the literal with the highest level goes second, so the clause watches it after the jump
+        int backjump = 0;
+        for(int i = 1; i < size; i++) {
+            if(this.level[clause[i] >> 1] > backjump) {
+                backjump = this.level[clause[i] >> 1];
+                final int swap = clause[1];
+                clause[1] = clause[i];
+                clause[i] = swap;
+            }
+        }
+
+        this.increment /= VARIABLE_DECAY;
+        backtrack(backjump);
+        if(size == 1) {
+            assign(clause[0], -1);
+        } else {
+            final int[] learnedClause = Arrays.copyOf(clause, size);
+            final int learnedId = attach(learnedClause, levels(learnedClause));
+            if(this.learnedSize == this.learned.length) {
+                this.learned = Arrays.copyOf(this.learned, this.learnedSize * 2);
+            }
+            this.learned[this.learnedSize++] = learnedId;
+            assign(clause[0], learnedId);
+        }
+    }
+
+    /**
+     * @return True, if the literal of the learned clause is false because of literals that are in the clause anyway.
+     */
+    private boolean isImplied(int literal) {
+        final int id = this.reason[literal >> 1];
+        if(id == -1) {
+            return false;
+        }
+        final int[] c = this.clauses.get(id);
+        for(int k = 1; k < c.length; k++) {
+            final int variable = c[k] >> 1;
+            if(!this.seen[variable] && this.level[variable] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The amount of different levels of the literals of the clause (LBD).
+     */
+    private int levels(int[] clause) {
+        this.stamp++;
+        int count = 0;
+        for(int literal : clause) {
+            final int l = this.level[literal >> 1];
+            if(this.levelStamp[l] != this.stamp) {
+                this.levelStamp[l] = this.stamp;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Deletes half of the learned clauses, the ones with the highest LBD first. Clauses that are the reason of an
+     * assignment and clauses with an LBD of at most {@link #KEPT_LBD} are kept.
+     */
+    private void reduce() {
+        final Integer[] order = new Integer[this.learnedSize];
+        for(int i = 0; i < this.learnedSize; i++) {
+            order[i] = this.learned[i];
+        }
+        //--- stable, so the older clauses go first on ties
+        Arrays.sort(order, (a, b) -> -Integer.compare(this.lbd[a], this.lbd[b]));
+
+        int deleted = 0;
+        for(int i = 0; i < order.length && deleted < order.length / 2; i++) {
+            final int id = order[i];
+            final int[] c = this.clauses.get(id);
+            if(this.lbd[id] <= KEPT_LBD || (this.reason[c[0] >> 1] == id && this.values[c[0]] == TRUE)) {
+                continue;
+            }
+            this.clauses.set(id, null);
+            deleted++;
+        }
+
+        int size = 0;
+        for(int i = 0; i < this.learnedSize; i++) {
+            if(this.clauses.get(this.learned[i]) != null) {
+                this.learned[size++] = this.learned[i];
+            }
+        }
+        this.learnedSize = size;
+        this.maxLearned += this.maxLearned / 10;
+    }
+
+    /**
+     * Propagates all assignments on the trail that were not propagated yet.
+     * @return The id of a clause that is false, -1 if there is no conflict.
+     */
+    private int propagate() {
+        while (this.propagated < this.trailSize) {
+            final int falseLiteral = this.trail[this.propagated++] ^ 1;
+            final int[] watchList = this.watches[falseLiteral];
+            final int size = this.watchSizes[falseLiteral];
+
+            int i = 0;
+            int j = 0;
+            while (i < size) {
+                final int id = watchList[i++];
+                final int[] c = this.clauses.get(id);
+                if(c == null) {
+                    continue;
+                }
+
+                //--- the false literal goes second
+                if(c[0] == falseLiteral) {
+                    c[0] = c[1];
+                    c[1] = falseLiteral;
+                }
+                if(this.values[c[0]] == TRUE) {
+                    watchList[j++] = id;
+                    continue;
+                }
+
+                //--- watch another literal that is not false
+                boolean moved = false;
+                for(int k = 2; k < c.length; k++) {
+                    if(this.values[c[k]] != FALSE) {
+                        c[1] = c[k];
+                        c[k] = falseLiteral;
+                        watch(c[1], id);
+                        moved = true;
+                        break;
+                    }
+                }
+                if(moved) {
+                    continue;
+                }
+
+                watchList[j++] = id;
+                if(this.values[c[0]] == FALSE) {
+                    while (i < size) {
+                        watchList[j++] = watchList[i++];
+                    }
+                    this.watchSizes[falseLiteral] = j;
+                    this.propagated = this.trailSize;
+                    return id;
+                }
+                assign(c[0], id);
+            }
+            this.watchSizes[falseLiteral] = j;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a clause with at least two literals and watches its first two.
+     * @return The id of the clause.
+     */
+    private int attach(int[] clause, int lbd) {
+        final int id = this.clauses.size();
+        this.clauses.add(clause);
+        if(id == this.lbd.length) {
+            this.lbd = Arrays.copyOf(this.lbd, id * 2);
+        }
+        this.lbd[id] = lbd;
+        if(lbd == 0) {
+            this.maxLearned = Math.max(MIN_LEARNED, this.clauses.size() / 3);
+        }
+        watch(clause[0], id);
+        watch(clause[1], id);
+        return id;
+    }
+
+    private void watch(int literal, int id) {
+        if(this.watchSizes[literal] == this.watches[literal].length) {
+            this.watches[literal] = Arrays.copyOf(this.watches[literal], this.watchSizes[literal] * 2);
+        }
+        this.watches[literal][this.watchSizes[literal]++] = id;
+    }
+
+    private void assign(int literal, int reason) {
+        final int variable = literal >> 1;
+        this.values[literal] = TRUE;
+        this.values[literal ^ 1] = FALSE;
+        this.level[variable] = this.decisionLevel;
+        this.reason[variable] = reason;
+        this.trail[this.trailSize++] = literal;
+    }
+
+    /**
+     * Undoes all assignments above the level.
+     */
+    private void backtrack(int level) {
+        if(this.decisionLevel <= level) {
+            return;
+        }
+        for(int i = this.trailSize - 1; i >= this.trailLimits[level]; i--) {
+            final int literal = this.trail[i];
+            final int variable = literal >> 1;
+            this.phase[variable] = (literal & 1) == 0;
+            this.values[literal] = UNASSIGNED;
+            this.values[literal ^ 1] = UNASSIGNED;
+            this.reason[variable] = -1;
+            if(this.heapIndex[variable] == -1) {
+                insert(variable);
+            }
+        }
+        this.trailSize = this.trailLimits[level];
+        this.propagated = this.trailSize;
+        this.decisionLevel = level;
+    }
+
+    /**
+     * @return The unassigned variable with the highest activity, -1 if all are assigned.
+     */
+    private int next() {
+        while (this.heapSize > 0) {
+            final int variable = this.heap[0];
+            this.heap[0] = this.heap[--this.heapSize];
+            this.heapIndex[this.heap[0]] = 0;
+            this.heapIndex[variable] = -1;
+            if(this.heapSize > 0) {
+                down(0);
+            }
+            if(this.values[literal(variable, true)] == UNASSIGNED) {
+                return variable;
+            }
+        }
+        return -1;
+    }
+
+    private void bump(int variable) {
+        if((this.activity[variable] += this.increment) > 1e100) {
+            for(int v = 0; v < this.variables; v++) {
+                this.activity[v] *= 1e-100;
+            }
+            this.increment *= 1e-100;
+        }
+        if(this.heapIndex[variable] != -1) {
+            up(this.heapIndex[variable]);
+        }
+    }
+
+    private void insert(int variable) {
+        this.heap[this.heapSize] = variable;
+        this.heapIndex[variable] = this.heapSize;
+        up(this.heapSize++);
+    }
+
+    private void up(int index) {
+        final int variable = this.heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >> 1;
+            if(this.activity[this.heap[parent]] >= this.activity[variable]) {
+                break;
+            }
+            this.heap[index] = this.heap[parent];
+            this.heapIndex[this.heap[index]] = index;
+            index = parent;
+        }
+        this.heap[index] = variable;
+        this.heapIndex[variable] = index;
+    }
+
+    private void down(int index) {
+        final int variable = this.heap[index];
+        while (2 * index + 1 < this.heapSize) {
+            int child = 2 * index + 1;
+            if(child + 1 < this.heapSize && this.activity[this.heap[child + 1]] > this.activity[this.heap[child]]) {
+                child++;
+            }
+            if(this.activity[this.heap[child]] <= this.activity[variable]) {
+                break;
+            }
+            this.heap[index] = this.heap[child];
+            this.heapIndex[this.heap[index]] = index;
+            index = child;
+        }
+        this.heap[index] = variable;
+        this.heapIndex[variable] = index;
+    }
+
+    /**
+     * @return The i-th element (starting at 0) of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    private static long luby(long i) {
+        long size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            sequence--;
+            i = i % size;
+        }
+        return 1L << sequence;
+    }
+
+}
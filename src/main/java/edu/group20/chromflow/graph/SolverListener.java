@@ -0,0 +1,54 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * Receives the progress of a run of {@link ChromaticNumber#computeExact(Graph, boolean, int, SolverSettings)}. All
+ * methods get called in the thread that called computeExact, also while the engine runs in other threads, so an
+ * implementation does not have to be thread-safe. They get called in the middle of the run, so they should return
+ * quickly.
+ *
+ * The runs on the pieces the cleaner cuts the graph into report to the same listener with a higher depth, their
+ * bounds only bound the chromatic number of their piece.
+ */
+public interface SolverListener {
+
+    /**
+     * Ignores all events, the default of the {@link SolverSettings}.
+     */
+    SolverListener NONE = new SolverListener() {};
+
+    /**
+     * A colouring with less colours than before got found.
+     * @param depth 0 for the graph itself, 1 and more for the pieces of the cleaner.
+     * @param upper The new upper bound.
+     */
+    default void onUpperBound(int depth, int upper) {}
+
+    /**
+     * It got proven that the graph needs more colours than before.
+     * @param depth 0 for the graph itself, 1 and more for the pieces of the cleaner.
+     * @param lower The new lower bound.
+     */
+    default void onLowerBound(int depth, int lower) {}
+
+    /**
+     * The bounds met, this is the last event of the run on this depth.
+     * @param depth 0 for the graph itself, 1 and more for the pieces of the cleaner.
+     * @param exact The chromatic number.
+     */
+    default void onExact(int depth, int exact) {}
+
+    /**
+     * @param depth 0 for the graph itself, 1 and more for the pieces of the cleaner.
+     * @param phase The step that starts.
+     */
+    default void onPhaseStart(int depth, SolverPhase phase) {}
+
+    /**
+     * Also gets called if the step got cancelled.
+     * @param depth 0 for the graph itself, 1 and more for the pieces of the cleaner.
+     * @param phase The step that ended.
+     * @param nanos How long the step took.
+     */
+    default void onPhaseEnd(int depth, SolverPhase phase, long nanos) {}
+
+}
@@ -0,0 +1,52 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * The steps of a run of {@link ChromaticNumber#computeExact(Graph, boolean, int, SolverSettings)} that get reported to
+ * the {@link SolverListener}.
+ */
+public enum SolverPhase {
+    /**
+     * Copying the graph into its CSR form.
+     */
+    COMPACT,
+    /**
+     * The greedy colouring that gives the first upper bound.
+     */
+    UPPER_BOUND,
+    /**
+     * The search for the biggest clique, which gives the lower bound.
+     */
+    CLIQUE,
+    /**
+     * The LP relaxation of the colouring, which gives the fractional chromatic number as a lower bound.
+     */
+    FRACTIONAL,
+    /**
+     * The whole run of the {@link edu.group20.chromflow.GraphCleaner}, the steps below are part of it.
+     */
+    CLEANING,
+    /**
+     * Removing the nodes with at most one neighbour, until there are none left.
+     */
+    REMOVE_SINGLES,
+    /**
+     * Splitting the graph at nodes that are connected to all other nodes, this includes the runs on the pieces.
+     */
+    SPLIT_FULLY_CONNECTED,
+    /**
+     * Checking if the graph is k-regular and applying Brooks' theorem.
+     */
+    K_REGULAR,
+    /**
+     * Splitting the graph at an articulation point, this includes the runs on the pieces.
+     */
+    ARTICULATION_POINTS,
+    /**
+     * Sorting the nodes for the {@link ExactEngine#DESCENDING} and {@link ExactEngine#SAT} engines.
+     */
+    ORDERING,
+    /**
+     * The run of the {@link ExactEngine}.
+     */
+    SEARCH
+}
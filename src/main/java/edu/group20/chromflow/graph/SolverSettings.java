@@ -0,0 +1,141 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * Settings for a single run of {@link ChromaticNumber#computeExact(Graph, boolean, int, SolverSettings)}. They get
+ * passed on to the runs on the pieces the cleaner cuts the graph into.
+ */
+public class SolverSettings {
+
+    private ExactEngine engine = ExactEngine.DSATUR;
+    private int parallelism = 1;
+    private VertexOrdering ordering = VertexOrdering.DEGREE_DESC;
+    private BoundStrategy strategy = BoundStrategy.TOP_DOWN;
+    private CancellationToken cancellation = new CancellationToken();
+    private SolverListener listener = SolverListener.NONE;
+    private boolean fractionalBound = true;
+    /**
+     * The time limit of the fractional bound, shared by all pieces of a run. Null until the run starts.
+     */
+    private CancellationToken fractionalLimit = null;
+
+    public ExactEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * @param engine The algorithm that computes the chromatic number.
+     * @return this
+     */
+    public SolverSettings setEngine(ExactEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public VertexOrdering getOrdering() {
+        return this.ordering;
+    }
+
+    /**
+     * @param ordering The order in which the {@link ExactEngine#DESCENDING} and {@link ExactEngine#SAT} engines colour
+     *                 the nodes.
+     * @return this
+     */
+    public SolverSettings setOrdering(VertexOrdering ordering) {
+        this.ordering = ordering;
+        return this;
+    }
+
+    public BoundStrategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * @param strategy The order in which the {@link ExactEngine#DESCENDING} and {@link ExactEngine#SAT} engines test
+     *                 the amounts of colours.
+     * @return this
+     */
+    public SolverSettings setStrategy(BoundStrategy strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+
+    public CancellationToken getCancellation() {
+        return this.cancellation;
+    }
+
+    /**
+     * @param cancellation The token that stops the run early, e.g. {@link CancellationToken#withTimeLimit(long)}.
+     * @return this
+     */
+    public SolverSettings setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
+    public SolverListener getListener() {
+        return this.listener;
+    }
+
+    /**
+     * @param listener Receives the bounds and the steps of the run, {@link SolverListener#NONE} to ignore them.
+     * @return this
+     */
+    public SolverSettings setListener(SolverListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public boolean isFractionalBound() {
+        return this.fractionalBound;
+    }
+
+    /**
+     * @param fractionalBound Whether or not the fractional chromatic number gets computed as a lower bound, only for
+     *                        graphs with at most 300 nodes and for at most 2 seconds in total per run.
+     * @return this
+     */
+    public SolverSettings setFractionalBound(boolean fractionalBound) {
+        this.fractionalBound = fractionalBound;
+        return this;
+    }
+
+    CancellationToken getFractionalLimit() {
+        return this.fractionalLimit;
+    }
+
+    /**
+     * @param fractionalLimit The time limit of the fractional bound.
+     * @return A copy of these settings for the pieces of a run, so they share the time limit of the run.
+     */
+    SolverSettings withFractionalLimit(CancellationToken fractionalLimit) {
+        SolverSettings copy = new SolverSettings();
+        copy.engine = this.engine;
+        copy.parallelism = this.parallelism;
+        copy.ordering = this.ordering;
+        copy.strategy = this.strategy;
+        copy.cancellation = this.cancellation;
+        copy.listener = this.listener;
+        copy.fractionalBound = this.fractionalBound;
+        copy.fractionalLimit = fractionalLimit;
+        return copy;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @param parallelism The amount of threads the exact search may use, 1 runs it in the calling thread. The
+     *                    {@link ExactEngine#PORTFOLIO} runs every member in its own thread anyway, and only its DSATUR
+     *                    search uses this.
+     * @return this
+     */
+    public SolverSettings setParallelism(int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism has to be at least 1.");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+}
@@ -0,0 +1,25 @@
+package edu.group20.chromflow.graph;
+
+/**
+ * The orders in which the descending exact test colours the nodes. Which one is the fastest varies a lot from graph
+ * to graph, see {@link ExactEngine#PORTFOLIO}.
+ */
+public enum VertexOrdering {
+    /**
+     * Nodes with a higher degree first.
+     */
+    DEGREE_DESC,
+    /**
+     * Sorted by degree, and then every node is moved in front of the nodes it is connected to.
+     */
+    NEIGHBOURS,
+    /**
+     * Nodes that lie on many shortest paths first, each followed by its neighbours.
+     */
+    K_SHORTEST_PATH,
+    /**
+     * The reverse of the order in which the nodes get removed when we keep removing the node with the smallest
+     * degree, the same order {@link UpperBoundMode#SUPERMAN} colours the nodes in.
+     */
+    SMALLEST_LAST
+}
@@ -0,0 +1,270 @@
+package edu.group20.chromflow.misc;
+
+import edu.group20.chromflow.TestApp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses the edges of a graph file byte by byte without creating any strings. The parser is a small state machine,
+ * so the input can be fed in chunks that split lines anywhere.
+ *
+ * Supported are DIMACS .col files (only the "e from to" lines are read) and the text format with one "from to" pair per
+ * line, where every line that does not start with a number (VERTICES, EDGES, // comments) is skipped.
+ */
+public class EdgeParser {
+
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final static int LINE_START = 0;
+    private final static int SKIP_LINE = 1;
+    private final static int FIELDS = 2;
+
+    private final String source;
+    private final boolean col;
+    private final EdgeConsumer consumer;
+
+    private int state = LINE_START;
+    private int line = 1;
+    private long lines = 0;
+    private long edges = 0;
+
+    //--- the line that is being parsed
+    private int fields = 0;
+    private int from;
+    private int to;
+    private int value;
+    private boolean negative;
+    private boolean inNumber;
+    private boolean malformed;
+
+    /**
+     * @param source The name of the input, only used for the debug output.
+     * @param col True for DIMACS .col files, false for the text format.
+     * @param consumer Gets every edge in the order of the input.
+     */
+    public EdgeParser(String source, boolean col, EdgeConsumer consumer) {
+        this.source = source;
+        this.col = col;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Parses the whole file.
+     * @param path The file.
+     * @param col True for DIMACS .col files, false for the text format.
+     * @param consumer Gets every edge in the order of the file.
+     * @return The parser, to look at the amount of lines and edges.
+     * @throws IOException If the file can not be read.
+     */
+    public static EdgeParser parse(Path path, boolean col, EdgeConsumer consumer) throws IOException {
+        EdgeParser parser = new EdgeParser(path.toString(), col, consumer);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                parser.feed(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        parser.finish();
+        return parser;
+    }
+
+    /**
+     * Parses the lines that start in the given range of the file, so the file can be split into ranges at any byte and
+     * every line still gets parsed exactly once. The channel is only read with absolute positions, so several ranges
+     * can be parsed at the same time.
+     * @param channel The file.
+     * @param start The first byte of the range.
+     * @param end The end of the range (exclusive), the last line gets read past it.
+     * @param col True for DIMACS .col files, false for the text format.
+     * @param consumer Gets every edge in the order of the file.
+     * @return The parser, to look at the amount of lines and edges.
+     * @throws IOException If the file can not be read.
+     */
+    public static EdgeParser parse(FileChannel channel, long start, long end, boolean col, EdgeConsumer consumer) throws IOException {
+        EdgeParser parser = new EdgeParser(String.format("bytes %d-%d", start, end), col, consumer);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1, end - start)));
+
+        //--- the line that we start in belongs to the previous range
+        if(start > 0) {
+            buffer.limit(1);
+            channel.read(buffer, start - 1);
+            if(buffer.get(0) != '\n') {
+                parser.state = SKIP_LINE;
+            }
+            buffer.clear();
+        }
+
+        long position = start;
+        byte last = '\n';
+        while (position < end) {
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            if(read == -1) break;
+            parser.feed(buffer.array(), 0, read);
+            last = buffer.get(read - 1);
+            position += read;
+            buffer.clear();
+        }
+
+        //--- finish the line that we end in
+        while (last != '\n') {
+            final int read = channel.read(buffer, position);
+            if(read == -1) break;
+
+            int length = 0;
+            while (length < read && last != '\n') {
+                last = buffer.get(length++);
+            }
+            parser.feed(buffer.array(), 0, length);
+            position += length;
+            buffer.clear();
+        }
+
+        parser.finish();
+        return parser;
+    }
+
+    /**
+     * Parses the next chunk of the input.
+     * @param bytes The chunk.
+     * @param offset The first byte to parse.
+     * @param length The amount of bytes to parse.
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        final int end = offset + length;
+        for(int i = offset; i < end; i++) {
+            final byte b = bytes[i];
+
+            switch (this.state) {
+                case LINE_START:
+                    if(b == '\n') {
+                        this.line++;
+                    } else if(b == ' ' || b == '\t' || b == '\r') {
+                        // leading whitespace
+                    } else if(this.col) {
+                        this.lines++;
+                        this.state = b == 'e' ? FIELDS : SKIP_LINE;
+                    } else {
+                        this.lines++;
+                        if((b >= '0' && b <= '9') || b == '-') {
+                            this.state = FIELDS;
+                            field(b);
+                        } else {
+                            this.state = SKIP_LINE;
+                        }
+                    }
+                    break;
+
+                case SKIP_LINE:
+                    if(b == '\n') {
+                        this.line++;
+                        this.state = LINE_START;
+                    }
+                    break;
+
+                case FIELDS:
+                    if(b == '\n') {
+                        endLine();
+                        this.line++;
+                    } else {
+                        field(b);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Has to be called after the last chunk, in case the input does not end with a line break.
+     */
+    public void finish() {
+        if(this.state == FIELDS) {
+            endLine();
+        }
+        this.state = LINE_START;
+    }
+
+    /**
+     * @return The amount of non-empty lines parsed so far.
+     */
+    public long getLines() {
+        return this.lines;
+    }
+
+    /**
+     * @return The amount of edges passed to the consumer so far.
+     */
+    public long getEdges() {
+        return this.edges;
+    }
+
+    private void field(byte b) {
+        if(b >= '0' && b <= '9') {
+            final int digit = b - '0';
+            //--- an id that does not fit into an int makes the line malformed instead of wrapping around
+            if(this.value > (Integer.MAX_VALUE - digit) / 10) {
+                this.malformed = true;
+            } else {
+                this.value = this.value * 10 + digit;
+            }
+            this.inNumber = true;
+        } else if(b == '-' && !this.inNumber && !this.negative) {
+            this.negative = true;
+        } else if(b == ' ' || b == '\t' || b == '\r') {
+            endNumber();
+        } else {
+            this.malformed = true;
+        }
+    }
+
+    private void endNumber() {
+        if(this.inNumber) {
+            final int number = this.negative ? -this.value : this.value;
+            if(this.fields == 0) {
+                this.from = number;
+            } else if(this.fields == 1) {
+                this.to = number;
+            }
+            this.fields++;
+        } else if(this.negative) {
+            this.malformed = true;
+        }
+        this.value = 0;
+        this.negative = false;
+        this.inNumber = false;
+    }
+
+    private void endLine() {
+        endNumber();
+        if(this.fields == 2 && !this.malformed) {
+            this.consumer.accept(this.from, this.to);
+            this.edges++;
+        } else {
+            TestApp.debugln(String.format("Debug %s:%d >> Malformed edge line.", this.source, this.line));
+        }
+        this.fields = 0;
+        this.malformed = false;
+        this.state = LINE_START;
+    }
+
+    /**
+     * Receives the parsed edges.
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+
+        /**
+         * @param from The id of the first node.
+         * @param to The id of the second node.
+         */
+        void accept(int from, int to);
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package edu.group20.chromflow.misc;
+
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.util.Mergesort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An on-disk cache of parsed graphs in the binary format (see {@link GraphWriter}). An input file is identified by its
+ * path, size and last modification time, so a changed file is parsed again. The cache keeps at most the configured
+ * amount of bytes and evicts the least recently used graphs first, the last modification time of a cached file is
+ * the time it was last used.
+ */
+public class GraphCache {
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * @param directory The directory for the cached graphs, it gets created if it does not exist.
+     * @param maxSize The max amount of bytes all cached graphs together may use.
+     */
+    public GraphCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Looks up the cached graph of the input file.
+     * @param input The text file the graph was parsed from.
+     * @return The cached binary file, or null if the input was not cached (or changed since).
+     */
+    public Path lookup(Path input) {
+        try {
+            final Path cached = this.directory.resolve(key(input));
+            if(!Files.isRegularFile(cached)) {
+                return null;
+            }
+            Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+            return cached;
+        } catch (IOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", input, String.format("The graph cache could not (!) be read. (%s)", e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Stores the graph parsed from the input file, and evicts the least recently used graphs if the cache gets too
+     * large.
+     * @param input The text file the graph was parsed from.
+     * @param graph The graph.
+     */
+    public void store(Path input, Graph graph) {
+        try {
+            Files.createDirectories(this.directory);
+            final Path cached = this.directory.resolve(key(input));
+
+            //--- write to a temporary file first, so no one ever reads a half written graph
+            final Path temporary = Files.createTempFile(this.directory, "store", ".tmp");
+            if(!GraphWriter.writeBinary(graph, temporary.toString())) {
+                Files.deleteIfExists(temporary);
+                return;
+            }
+            Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            evict();
+        } catch (IOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", input, String.format("The graph could not (!) be cached. (%s)", e.getMessage()));
+        }
+    }
+
+    /**
+     * Deletes the least recently used graphs until the cache is small enough.
+     * @throws IOException
+     */
+    private void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, FileTime> used = new HashMap<>();
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + GraphReader.BINARY_EXTENSION)) {
+            for(Path file : stream) {
+                files.add(file);
+                used.put(file, Files.getLastModifiedTime(file));
+                size += Files.size(file);
+            }
+        }
+
+        if(size <= this.maxSize) {
+            return;
+        }
+
+        for(Path file : Mergesort.sort(files, Comparator.comparing(used::get))) {
+            if(size <= this.maxSize) {
+                break;
+            }
+            final long length = Files.size(file);
+            if(Files.deleteIfExists(file)) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * @param input The input file.
+     * @return The name of the cached file, a hash of the path, the size and the last modification time of the input.
+     * @throws IOException If the input file can not be accessed.
+     */
+    private static String key(Path input) throws IOException {
+        final String fingerprint = String.format("%s|%d|%d", input.toAbsolutePath().normalize(), Files.size(input),
+                Files.getLastModifiedTime(input).toMillis());
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 16; i++) {
+                builder.append(String.format("%02x", hash[i]));
+            }
+            return builder.append(GraphReader.BINARY_EXTENSION).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -1,84 +1,222 @@
 package edu.group20.chromflow.misc;
 
 import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.ExternalGraphBuilder;
 import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.GraphBuilder;
+import edu.group20.chromflow.graph.MappedGraph;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Reads in the graph.
  */
 public class GraphReader {
 
-    public static Graph parseGraph(final String path) {
-        Graph graph = new Graph();
+    /**
+     * Files with this extension are binary graphs written by the {@link GraphWriter}.
+     */
+    public final static String BINARY_EXTENSION = ".cgraph";
+
+    /**
+     * Files of at least this size get split into ranges that are parsed in parallel.
+     */
+    private final static long PARALLEL_THRESHOLD = 1 << 23;
+    /**
+     * The size of the ranges a file gets split into, a range of this size is parsed by a single thread.
+     */
+    private final static long CHUNK_SIZE = 1 << 22;
+
+    /**
+     * The cache for parsed text files, null if they should not be cached.
+     */
+    private static GraphCache cache = null;
+
+    /**
+     * @param cache The cache for parsed text files, or null to not cache them.
+     */
+    public static void setCache(GraphCache cache) {
+        GraphReader.cache = cache;
+    }
 
-        boolean isCol = path.endsWith(".col");
-        long time = System.currentTimeMillis();
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
-            TestApp.debug("ReadAllLines (%dms) >> %d line(s)%n", (System.currentTimeMillis() - time), lines.size());
+    public static GraphCache getCache() {
+        return cache;
+    }
 
-            time = System.currentTimeMillis();
-            lines.stream().filter(e -> !(e.startsWith("VERTICES") || e.startsWith("EDGES") || e.startsWith("//")))
-                    .forEach(line -> {
+    public static Graph parseGraph(final String path) {
+        if(path.endsWith(BINARY_EXTENSION)) {
+            return readBinary(path);
+        }
 
-                        int from = -1;
-                        int to = -1;
+        final boolean isCol = path.endsWith(".col");
+        final Path file = Paths.get(path);
+
+        //--- the cache is only used for files that exist, otherwise we run into the same error message as before
+        final GraphCache cache = GraphReader.cache;
+        if(cache != null && Files.isRegularFile(file)) {
+            final Path cached = cache.lookup(file);
+            if(cached != null) {
+                Graph graph = readBinary(cached.toString());
+                if(graph != null) {
+                    return graph;
+                }
+            }
+        }
 
-                        if(isCol) {
-                            if(line.startsWith("e")) {
+        long time = System.currentTimeMillis();
+        GraphBuilder builder;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if(size >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                builder = ForkJoinPool.commonPool().invoke(new ParseTask(channel, 0, size, isCol));
+            } else {
+                builder = new GraphBuilder();
+                EdgeParser.parse(channel, 0, size, isCol, builder::addEdge);
+            }
+            TestApp.debug("Parse (%dms) >> %d bytes, %d edge(s)%n", (System.currentTimeMillis() - time), size, builder.getEdgeCount());
+        } catch (IOException | UncheckedIOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", path, String.format("The file could not (!) be read. (%s)", e.getMessage()));
+            return null;
+        }
 
-                                String[] split = line.trim().replaceAll("[ ]{2,}", " ").split(" ");
+        time = System.currentTimeMillis();
+        Graph graph = builder.build();
 
-                                //--- Error
-                                if (split.length != 3) {
-                                    TestApp.debugln(String.format("Debug %s >> %s", path, String.format("Malformed edge line: %s", line)));
-                                }
+        TestApp.debug("Build Graph (%dms) >> Graph (%s) parsed %d vertices, %d edges and a density of %.6f%%.%n",
+                (System.currentTimeMillis() - time), path, graph.getNodes().size(), graph.getEdgeCount(), graph.getDensity() * 100);
 
-                                from = Integer.parseInt(split[1]);
-                                to = Integer.parseInt(split[2]);
+        if(cache != null) {
+            cache.store(file, graph);
+        }
+        return graph;
+    }
 
-                            }
-                        } else {
+    /**
+     * Converts a text file that might be larger than the heap into a binary graph file, without ever loading the whole
+     * graph, see {@link ExternalGraphBuilder}. The temporary files go next to the output file.
+     * @param path The text file.
+     * @param output The binary file, it should end with {@link #BINARY_EXTENSION}.
+     * @param maxEdgesInMemory The amount of edges to keep in the heap at once.
+     * @return The mapped graph, or null if a file could not be read or written.
+     */
+    public static MappedGraph convertGraph(final String path, final String output, final int maxEdgesInMemory) {
+        final boolean isCol = path.endsWith(".col");
+        final Path target = Paths.get(output).toAbsolutePath();
 
-                            String[] split = line.split(" ");
+        long time = System.currentTimeMillis();
+        try (ExternalGraphBuilder builder = new ExternalGraphBuilder(target.getParent(), maxEdgesInMemory)) {
+            EdgeParser parser = EdgeParser.parse(Paths.get(path), isCol, (from, to) -> {
+                try {
+                    builder.addEdge(from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            TestApp.debug("Parse (%dms) >> %d line(s), %d edge(s)%n", (System.currentTimeMillis() - time), parser.getLines(), parser.getEdges());
+
+            time = System.currentTimeMillis();
+            builder.build(target);
+        } catch (IOException | UncheckedIOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", path, String.format("The file could not (!) be converted. (%s)", e.getMessage()));
+            return null;
+        }
 
-                            //--- Error
-                            if (split.length != 2) {
-                                TestApp.debugln(String.format("Debug %s >> %s", path, String.format("Malformed edge line: %s", line)));
-                            }
-                            from = Integer.parseInt(split[0]);
-                            to = Integer.parseInt(split[1]);
+        final MappedGraph graph = openBinary(output);
+        if(graph != null) {
+            TestApp.debug("Convert Graph (%dms) >> Graph (%s) written with %d vertices and %d edges.%n",
+                    (System.currentTimeMillis() - time), output, graph.size(), graph.getEdgeCount());
+        }
+        return graph;
+    }
 
-                        }
+    /**
+     * Maps a binary graph file, the graph is read from the file when it gets accessed, see {@link MappedGraph}.
+     * @param path The file.
+     * @return The graph, or null if the file could not be read.
+     */
+    public static MappedGraph openBinary(final String path) {
+        try {
+            return MappedGraph.open(Paths.get(path));
+        } catch (IOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", path, String.format("The file could not (!) be read. (%s)", e.getMessage()));
+            return null;
+        }
+    }
 
-                        if (!graph.hasNode(from)) {
-                            graph.addNode(from, -1);
-                        }
+    /**
+     * Loads a binary graph file into the heap. The colouring, if the file has one, becomes the values of the nodes.
+     * @param path The file.
+     * @return The graph, or null if the file could not be read.
+     */
+    private static Graph readBinary(final String path) {
+        long time = System.currentTimeMillis();
+        final MappedGraph mapped = openBinary(path);
+        if(mapped == null) {
+            return null;
+        }
 
-                        if (!graph.hasNode(to)) {
-                            graph.addNode(to, -1);
-                        }
+        final CompactGraph compact = CompactGraph.of(mapped);
+        Graph graph = Graph.of(compact);
+        if(mapped.hasColouring()) {
+            for(int v = 0; v < compact.size(); v++) {
+                graph.getNode(compact.getId(v)).setValue(mapped.getColour(v));
+            }
+        }
 
-                        graph.addEdge(from, to, true);
+        TestApp.debug("Load Graph (%dms) >> Graph (%s) loaded %d vertices, %d edges and a density of %.6f%%.%n",
+                (System.currentTimeMillis() - time), path, graph.getNodes().size(), graph.getEdgeCount(), graph.getDensity() * 100);
+        return graph;
+    }
 
-                    });
+    /**
+     * Parses a range of the file, by splitting it in half until the ranges are small enough. Every range gets its own
+     * builder, and the builders get merged on the way back up.
+     */
+    private static class ParseTask extends RecursiveTask<GraphBuilder> {
 
+        private static final long serialVersionUID = 1L;
 
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean isCol;
 
-        } catch (IOException e) {
-            TestApp.debug("Debug %s:-1 >> %s%n", path, String.format("The file could not (!) be read. (%s)", e.getMessage()));
-            return null;
+        ParseTask(FileChannel channel, long start, long end, boolean isCol) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.isCol = isCol;
         }
 
-        TestApp.debug("Build Graph (%dms) >> Graph (%s) parsed %d vertices, %d edges and a density of %.6f%%.%n",
-                (System.currentTimeMillis() - time), path, graph.getNodes().size(), graph.getEdgeCount(), graph.getDensity() * 100);
+        @Override
+        protected GraphBuilder compute() {
+            if(this.end - this.start <= CHUNK_SIZE) {
+                // about 10 bytes per edge line
+                GraphBuilder builder = new GraphBuilder((int) ((this.end - this.start) / 10));
+                try {
+                    EdgeParser.parse(this.channel, this.start, this.end, this.isCol, builder::addEdge);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return builder;
+            }
+
+            final long middle = this.start + (this.end - this.start) / 2;
+            ParseTask right = new ParseTask(this.channel, middle, this.end, this.isCol);
+            right.fork();
+            GraphBuilder left = new ParseTask(this.channel, this.start, middle, this.isCol).compute();
+            return left.addAll(right.join());
+        }
 
-        return graph;
     }
 
 }
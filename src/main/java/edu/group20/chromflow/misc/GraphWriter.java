@@ -0,0 +1,46 @@
+package edu.group20.chromflow.misc;
+
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.MappedGraph;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Writes graphs in the binary format of {@link MappedGraph}, so they can be loaded again by the {@link GraphReader}
+ * without parsing them.
+ */
+public class GraphWriter {
+
+    /**
+     * Writes the graph into a binary file. The values of the nodes are stored as a colouring, unless no node has one.
+     * @param graph The graph to write.
+     * @param path The file, it should end with {@link GraphReader#BINARY_EXTENSION}.
+     * @return True, if the file was written.
+     */
+    public static boolean writeBinary(final Graph graph, final String path) {
+        long time = System.currentTimeMillis();
+        final CompactGraph compact = graph.toCompactGraph();
+
+        int[] colouring = new int[compact.size()];
+        boolean coloured = false;
+        for(int v = 0; v < compact.size(); v++) {
+            colouring[v] = graph.getNode(compact.getId(v)).getValue();
+            coloured |= colouring[v] != -1;
+        }
+
+        try {
+            MappedGraph.write(compact, coloured ? colouring : null, Paths.get(path));
+        } catch (IOException e) {
+            TestApp.debug("Debug %s:-1 >> %s%n", path, String.format("The file could not (!) be written. (%s)", e.getMessage()));
+            return false;
+        }
+
+        TestApp.debug("Write Graph (%dms) >> Graph (%s) written with %d vertices and %d edges.%n",
+                (System.currentTimeMillis() - time), path, compact.size(), compact.getEdgeCount());
+        return true;
+    }
+
+}
@@ -0,0 +1,80 @@
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.misc.EdgeParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EdgeParserTest {
+
+    @BeforeAll
+    public static void setup() {
+        TestApp.OUTPUT_ENABLED = false;
+    }
+
+    @Test
+    public void testColFormat() {
+        String input = "c comment 1 2\np edge 3 2\ne 1 2\r\ne  2   3\n\ne 1\n";
+        Assertions.assertEquals(Arrays.asList(1, 2, 2, 3), parse(input, true, input.length()));
+    }
+
+    @Test
+    public void testTextFormat() {
+        String input = "VERTICES = 4\nEDGES = 3\n// 5 6\n1 2\n  -3 4\n4 x\n10 20";
+        Assertions.assertEquals(Arrays.asList(1, 2, -3, 4, 10, 20), parse(input, false, input.length()));
+    }
+
+    @Test
+    public void testOverflowIsMalformed() {
+        String input = "1 2147483647\n2147483648 3\n4 -99999999999\n5 6\n";
+        Assertions.assertEquals(Arrays.asList(1, 2147483647, 5, 6), parse(input, false, input.length()));
+    }
+
+    @Test
+    public void testChunksSplitLines() {
+        String input = "VERTICES = 3\n123 456\n7 89\n";
+        for (int chunk = 1; chunk < input.length(); chunk++) {
+            Assertions.assertEquals(Arrays.asList(123, 456, 7, 89), parse(input, false, chunk));
+        }
+    }
+
+    @Test
+    public void testRangesCoverEveryLineOnce() throws IOException {
+        String input = "p edge 4 4\ne 1 2\n  e 2 3\nc x\ne 30 4\ne 4 1";
+        Path file = Files.createTempFile("chromflow", ".col");
+        try (FileChannel channel = FileChannel.open(Files.write(file, input.getBytes(StandardCharsets.US_ASCII)))) {
+            for (int middle = 0; middle <= input.length(); middle++) {
+                List<Integer> ids = new ArrayList<>();
+                EdgeParser.parse(channel, 0, middle, true, (from, to) -> ids.add(from));
+                EdgeParser.parse(channel, middle, input.length(), true, (from, to) -> ids.add(from));
+                Assertions.assertEquals(Arrays.asList(1, 2, 30, 4), ids, "split at " + middle);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<Integer> parse(String input, boolean col, int chunk) {
+        List<Integer> ids = new ArrayList<>();
+        EdgeParser parser = new EdgeParser("test", col, (from, to) -> {
+            ids.add(from);
+            ids.add(to);
+        });
+
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i += chunk) {
+            parser.feed(bytes, i, Math.min(chunk, bytes.length - i));
+        }
+        parser.finish();
+        return ids;
+    }
+
+}
@@ -0,0 +1,371 @@
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.BoundStrategy;
+import edu.group20.chromflow.graph.CancellationToken;
+import edu.group20.chromflow.graph.ChromaticNumber;
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.ExactEngine;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.Node;
+import edu.group20.chromflow.graph.SolverListener;
+import edu.group20.chromflow.graph.SolverPhase;
+import edu.group20.chromflow.graph.SolverSettings;
+import edu.group20.chromflow.graph.UpperBoundMode;
+import edu.group20.chromflow.graph.VertexOrdering;
+import edu.group20.chromflow.misc.GraphReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ExactEngineTest {
+
+    @BeforeAll
+    public static void setup() {
+        TestApp.OUTPUT_ENABLED = false;
+    }
+
+    @Test
+    public void testEnginesAgree() {
+        final String[] graphs = new String[] { "myciel3", "myciel4", "queen5_5", "queen6_6", "2-Insertions_3", "2-FullIns_3" };
+        final int[] exactValues = { 4, 5, 5, 7, 4, 5 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/benchmark/%s.col", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            for (ExactEngine engine : ExactEngine.values()) {
+                ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(engine));
+                Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s, %s", graphs[i], engine));
+            }
+        }
+    }
+
+    @Test
+    public void testEnginesAgreeOnRandomGraphs() {
+        // dense random graphs used to hang the descending test, it tried every permutation of the colours
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            final int n = 5 + random.nextInt(40);
+            final double p = 0.1 + random.nextDouble() * 0.7;
+            Graph g = new Graph();
+            for (int v = 0; v < n; v++) {
+                g.addNode(v, -1);
+            }
+            for (int v = 0; v < n; v++) {
+                for (int w = v + 1; w < n; w++) {
+                    if (random.nextDouble() < p) {
+                        g.addEdge(v, w, true);
+                    }
+                }
+            }
+
+            final int dsatur = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(ExactEngine.DSATUR)).getExact();
+            final int descending = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(ExactEngine.DESCENDING)).getExact();
+            final int sat = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(ExactEngine.SAT)).getExact();
+            Assertions.assertEquals(dsatur, descending, String.format("Graph %d", i));
+            Assertions.assertEquals(dsatur, sat, String.format("Graph %d", i));
+
+            //--- the smallest-last colouring is a colouring, and it needs at most degeneracy + 1 colours
+            final int superman = ChromaticNumber.upperBound(g.toCompactGraph(), UpperBoundMode.SUPERMAN);
+            Assertions.assertTrue(superman >= dsatur, String.format("Graph %d", i));
+            Assertions.assertTrue(superman <= degeneracy(g) + 1, String.format("Graph %d", i));
+        }
+    }
+
+    /**
+     * @return The biggest smallest degree of all subgraphs, found by removing the node with the smallest degree.
+     */
+    private static int degeneracy(Graph graph) {
+        final CompactGraph compact = graph.toCompactGraph();
+        final int n = compact.size();
+        int[] degrees = new int[n];
+        boolean[] removed = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            degrees[v] = compact.getDegree(v);
+        }
+
+        int degeneracy = 0;
+        for (int step = 0; step < n; step++) {
+            int smallest = -1;
+            for (int v = 0; v < n; v++) {
+                if (!removed[v] && (smallest == -1 || degrees[v] < degrees[smallest])) {
+                    smallest = v;
+                }
+            }
+            degeneracy = Math.max(degeneracy, degrees[smallest]);
+            removed[smallest] = true;
+            for (int i = 0; i < compact.getDegree(smallest); i++) {
+                degrees[compact.getNeighbour(smallest, i)]--;
+            }
+        }
+        return degeneracy;
+    }
+
+    @Test
+    public void testOrderingsAgree() {
+        final String[] graphs = new String[] { "myciel3", "myciel4", "queen5_5" };
+        final int[] exactValues = { 4, 5, 5 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/benchmark/%s.col", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            for (VertexOrdering ordering : VertexOrdering.values()) {
+                ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0,
+                        new SolverSettings().setEngine(ExactEngine.DESCENDING).setOrdering(ordering));
+                Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s, %s", graphs[i], ordering));
+            }
+        }
+    }
+
+    @Test
+    public void testStrategiesAgree() {
+        final String[] graphs = new String[] { "benchmark/myciel4.col", "benchmark/queen5_5.col", "benchmark/queen6_6.col", "benchmark/2-Insertions_3.col", "block1/graph11.txt" };
+        final int[] exactValues = { 5, 5, 7, 4, 19 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/%s", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            for (ExactEngine engine : new ExactEngine[] { ExactEngine.DESCENDING, ExactEngine.SAT }) {
+                for (BoundStrategy strategy : BoundStrategy.values()) {
+                    ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0,
+                            new SolverSettings().setEngine(engine).setStrategy(strategy));
+                    Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s, %s, %s", graphs[i], engine, strategy));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSatOnFullInsGraphs() {
+        // the searches run into the same conflicts over and over on these, the learned clauses cut them off
+        final String[] graphs = new String[] { "1-FullIns_4", "3-FullIns_3", "4-FullIns_3" };
+        final int[] exactValues = { 5, 6, 7 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/benchmark/%s.col", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(ExactEngine.SAT));
+            Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s", graphs[i]));
+            assertColouring(r.getSolution(), exactValues[i]);
+        }
+    }
+
+    @Test
+    public void testTimeLimit() {
+        // these take minutes, but the bounds have to be right when the time is up
+        final String[] graphs = new String[] { "graph07", "graph12", "graph18" };
+        final int[] exactValues = { 7, 5, 8 };
+        final long limit = 500;
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/block1/%s.txt", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            long time = System.currentTimeMillis();
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, 0,
+                    new SolverSettings().setCancellation(CancellationToken.withTimeLimit(limit)));
+            time = System.currentTimeMillis() - time;
+
+            Assertions.assertFalse(r.isReady(), graphs[i]);
+            Assertions.assertTrue(time < limit + 1500, String.format("Graph %s took %dms", graphs[i], time));
+            Assertions.assertTrue(r.getLower() <= exactValues[i] && exactValues[i] <= r.getUpper(), String.format("Graph %s, %s", graphs[i], r));
+            assertColouring(r.getSolution(), r.getUpper());
+        }
+    }
+
+    @Test
+    public void testCancelledBeforeStart() {
+        Graph g = GraphReader.parseGraph("src/main/java/data/benchmark/queen6_6.col");
+        Assertions.assertNotNull(g);
+
+        for (ExactEngine engine : ExactEngine.values()) {
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(engine).setCancellation(token));
+
+            Assertions.assertFalse(r.isReady(), engine.toString());
+            Assertions.assertEquals(-1, r.getExact(), engine.toString());
+            Assertions.assertTrue(r.getLower() <= 7 && 7 <= r.getUpper(), String.format("%s, %s", engine, r));
+        }
+    }
+
+    @Test
+    public void testSolutionIsColoured() {
+        Graph g = GraphReader.parseGraph("src/main/java/data/benchmark/queen6_6.col");
+        Assertions.assertNotNull(g);
+
+        for (ExactEngine engine : ExactEngine.values()) {
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, false, 0, new SolverSettings().setEngine(engine));
+            Assertions.assertEquals(7, r.getExact(), engine.toString());
+            assertColouring(r.getSolution(), 7);
+        }
+    }
+
+    @Test
+    public void testListenerEvents() {
+        final String[] graphs = new String[] { "benchmark/queen6_6.col", "block3/block3_2018_graph04.txt" };
+        final int[] exactValues = { 7, 5 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/%s", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            for (ExactEngine engine : new ExactEngine[] { ExactEngine.DSATUR, ExactEngine.DESCENDING }) {
+                final String message = String.format("Graph %s, %s", graphs[i], engine);
+                final List<Integer> uppers = new ArrayList<>();
+                final List<Integer> lowers = new ArrayList<>();
+                final List<Integer> exacts = new ArrayList<>();
+                final Map<Integer, Deque<SolverPhase>> phases = new HashMap<>();
+
+                ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setEngine(engine).setListener(new SolverListener() {
+                    @Override
+                    public void onUpperBound(int depth, int upper) {
+                        if (depth == 0) uppers.add(upper);
+                    }
+
+                    @Override
+                    public void onLowerBound(int depth, int lower) {
+                        if (depth == 0) lowers.add(lower);
+                    }
+
+                    @Override
+                    public void onExact(int depth, int exact) {
+                        if (depth == 0) exacts.add(exact);
+                    }
+
+                    @Override
+                    public void onPhaseStart(int depth, SolverPhase phase) {
+                        phases.computeIfAbsent(depth, d -> new ArrayDeque<>()).push(phase);
+                    }
+
+                    @Override
+                    public void onPhaseEnd(int depth, SolverPhase phase, long nanos) {
+                        Assertions.assertEquals(phases.get(depth).pop(), phase, message);
+                        Assertions.assertTrue(nanos >= 0, message);
+                    }
+                }));
+
+                Assertions.assertEquals(exactValues[i], r.getExact(), message);
+                Assertions.assertEquals(Collections.singletonList(exactValues[i]), exacts, message);
+                Assertions.assertEquals(exactValues[i], (int) uppers.get(uppers.size() - 1), message);
+                Assertions.assertEquals(exactValues[i], (int) lowers.get(lowers.size() - 1), message);
+                for (int j = 1; j < uppers.size(); j++) {
+                    Assertions.assertTrue(uppers.get(j) < uppers.get(j - 1), message);
+                }
+                for (int j = 1; j < lowers.size(); j++) {
+                    Assertions.assertTrue(lowers.get(j) > lowers.get(j - 1), message);
+                }
+                phases.values().forEach(stack -> Assertions.assertTrue(stack.isEmpty(), message));
+            }
+        }
+    }
+
+    @Test
+    public void testFractionalBound() {
+        //--- the Mycielski graphs have no triangles, but their fractional chromatic number grows with them
+        final String[] graphs = new String[] { "myciel3", "myciel4", "queen6_6" };
+        final int[] fractionalValues = { 3, 4, 7 };
+        final int[] exactValues = { 4, 5, 7 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/benchmark/%s.col", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            final int expected = fractionalValues[i];
+            final String message = graphs[i];
+            final int[] lower = { 0 };
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setListener(new SolverListener() {
+                @Override
+                public void onLowerBound(int depth, int bound) {
+                    if (depth == 0) lower[0] = bound;
+                }
+
+                @Override
+                public void onPhaseEnd(int depth, SolverPhase phase, long nanos) {
+                    if (depth == 0 && phase == SolverPhase.FRACTIONAL) {
+                        Assertions.assertEquals(expected, lower[0], message);
+                    }
+                }
+            }));
+            Assertions.assertEquals(exactValues[i], r.getExact(), graphs[i]);
+
+            r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setFractionalBound(false));
+            Assertions.assertEquals(exactValues[i], r.getExact(), graphs[i]);
+        }
+    }
+
+    /**
+     * Checks that the values of the nodes are a proper colouring with at most the given amount of colours.
+     */
+    private static void assertColouring(Graph solution, int colours) {
+        for (Node node : solution.getNodes().values()) {
+            Assertions.assertTrue(node.getValue() >= 0 && node.getValue() < colours, String.format("Node %d", node.getId()));
+            for (Node.Edge edge : solution.getEdges(node.getId()).values()) {
+                Assertions.assertNotEquals(node.getValue(), edge.getTo().getValue(), String.format("Edge %d-%d", node.getId(), edge.getTo().getId()));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelDsatur() {
+        final String[] graphs = new String[] { "myciel4", "queen6_6", "2-FullIns_3", "le450_25a" };
+        final int[] exactValues = { 5, 7, 5, 25 };
+
+        for (int i = 0; i < graphs.length; i++) {
+            Graph g = GraphReader.parseGraph(String.format("src/main/java/data/benchmark/%s.col", graphs[i]));
+            Assertions.assertNotNull(g);
+
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setParallelism(4));
+            Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s", graphs[i]));
+
+            r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setEngine(ExactEngine.PORTFOLIO).setParallelism(4));
+            Assertions.assertEquals(exactValues[i], r.getExact(), String.format("Graph %s, %s", graphs[i], ExactEngine.PORTFOLIO));
+        }
+    }
+
+    @Test
+    public void testDescendingOnSparseGraph() {
+        // this one used to take minutes without forward checking
+        Graph g = GraphReader.parseGraph("src/main/java/data/block3/block3_2018_graph04.txt");
+        Assertions.assertNotNull(g);
+
+        ChromaticNumber.Result r = ChromaticNumber.computeExact(g, true, 0, new SolverSettings().setEngine(ExactEngine.DESCENDING));
+        Assertions.assertEquals(5, r.getExact());
+    }
+
+    @Test
+    public void testOddCycles() {
+        for (int n = 3; n <= 9; n++) {
+            Graph cycle = GraphTest.path(n);
+            cycle.addEdge(n, 1, true);
+
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(cycle, false, 0, new SolverSettings().setEngine(ExactEngine.DSATUR));
+            Assertions.assertEquals(n % 2 == 0 ? 2 : 3, r.getExact(), String.format("Cycle %d", n));
+        }
+    }
+
+    @Test
+    public void testLongCycleDoesNotOverflowTheStack() {
+        // both searches used to recurse once per node
+        final int n = 20001;
+        Graph cycle = GraphTest.path(n);
+        cycle.addEdge(n, 1, true);
+
+        for (ExactEngine engine : new ExactEngine[] { ExactEngine.DSATUR, ExactEngine.DESCENDING }) {
+            ChromaticNumber.Result r = ChromaticNumber.computeExact(cycle, false, 0, new SolverSettings().setEngine(engine));
+            Assertions.assertEquals(3, r.getExact(), engine.toString());
+        }
+    }
+
+}
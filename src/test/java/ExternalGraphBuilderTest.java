@@ -0,0 +1,60 @@
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.ExternalGraphBuilder;
+import edu.group20.chromflow.graph.GraphBuilder;
+import edu.group20.chromflow.graph.MappedGraph;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class ExternalGraphBuilderTest {
+
+    @Test
+    public void testSameAsGraphBuilder() throws IOException {
+        Path directory = Files.createTempDirectory("chromflow");
+        try {
+            Random random = new Random(20);
+            GraphBuilder expected = new GraphBuilder();
+            // tiny runs, so the merge needs more than one pass and the duplicates are spread over the runs
+            ExternalGraphBuilder builder = new ExternalGraphBuilder(directory, 7);
+            for (int i = 0; i < 1000; i++) {
+                final int from = random.nextInt(60) - 10;
+                final int to = random.nextInt(60) - 10;
+                expected.addEdge(from, to);
+                builder.addEdge(from, to);
+            }
+            expected.addNode(1000);
+            builder.addNode(1000);
+
+            Path output = directory.resolve("graph.cgraph");
+            builder.build(output);
+            Assertions.assertEquals(1, directory.toFile().list().length);
+
+            CompactGraph compact = expected.buildCompact();
+            MappedGraph mapped = MappedGraph.open(output);
+            Assertions.assertEquals(compact.size(), mapped.size());
+            Assertions.assertEquals(compact.getEdgeCount(), mapped.getEdgeCount());
+            Assertions.assertEquals(compact.getMaxDegree(), mapped.getMaxDegree());
+            for (int v = 0; v < compact.size(); v++) {
+                Assertions.assertEquals(compact.getId(v), mapped.getId(v));
+                Assertions.assertEquals(compact.getDegree(v), mapped.getDegree(v));
+                for (int i = 0; i < compact.getDegree(v); i++) {
+                    Assertions.assertEquals(compact.getNeighbour(v, i), mapped.getNeighbour(v, i));
+                }
+            }
+        } finally {
+            File[] files = directory.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.toFile().delete();
+        }
+    }
+
+}
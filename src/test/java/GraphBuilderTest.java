@@ -0,0 +1,54 @@
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.GraphBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class GraphBuilderTest {
+
+    @Test
+    public void testDuplicatesAndLoopsAreDropped() {
+        Graph graph = new GraphBuilder()
+                .addEdges(new int[] {3, 1, 1, 3, 2, 2, 1, 2, -4, 3, 1, 2}, 12)
+                .addNode(9)
+                .build();
+
+        Assertions.assertEquals(5, graph.getNodes().size());
+        Assertions.assertEquals(6, graph.getEdgeCount());
+        Assertions.assertTrue(graph.hasEdge(1, 3) && graph.hasEdge(3, 1));
+        Assertions.assertTrue(graph.hasEdge(-4, 3) && graph.hasEdge(3, -4));
+        Assertions.assertFalse(graph.hasEdge(2, 2));
+        Assertions.assertEquals(0, graph.getEdges(9).size());
+        Assertions.assertEquals(2, graph.getMaxDegree());
+        Assertions.assertEquals(-4, graph.getMinNodeId());
+        Assertions.assertEquals(9, graph.getMaxNodeId());
+    }
+
+    @Test
+    public void testSameAsGraph() {
+        GraphBuilder builder = new GraphBuilder(4);
+        Graph graph = new Graph();
+        for (int i = 1; i <= 40; i++) {
+            graph.addNode(i, -1);
+        }
+        for (int i = 1; i <= 40; i++) {
+            for (int j = i + 1; j <= 40; j += i) {
+                builder.addEdge(j, i);
+                graph.addEdge(i, j, true);
+            }
+        }
+
+        CompactGraph expected = CompactGraph.of(graph);
+        CompactGraph actual = builder.buildCompact();
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (int v = 0; v < expected.size(); v++) {
+            Assertions.assertEquals(expected.getId(v), actual.getId(v));
+            Assertions.assertEquals(expected.getDegree(v), actual.getDegree(v));
+            for (int i = 0; i < expected.getDegree(v); i++) {
+                Assertions.assertEquals(expected.getNeighbour(v, i), actual.getNeighbour(v, i));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.misc.GraphCache;
+import edu.group20.chromflow.misc.GraphReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class GraphCacheTest {
+
+    @BeforeAll
+    public static void setup() {
+        TestApp.OUTPUT_ENABLED = false;
+    }
+
+    @Test
+    public void testCachedGraphIsUsedUntilTheFileChanges() throws IOException {
+        Path directory = Files.createTempDirectory("chromflow");
+        Path input = directory.resolve("graph.txt");
+        GraphCache cache = new GraphCache(directory.resolve("cache"), Long.MAX_VALUE);
+        GraphReader.setCache(cache);
+        try {
+            Files.write(input, "VERTICES = 3\n1 2\n2 3\n".getBytes());
+            Graph parsed = GraphReader.parseGraph(input.toString());
+            Assertions.assertEquals(1, cachedFiles(cache));
+
+            // the input is not parsed again as long as its size and modification time stay the same
+            FileTime modified = Files.getLastModifiedTime(input);
+            Files.write(input, "VERTICES = 3\n1 3\n1 3\n".getBytes());
+            Files.setLastModifiedTime(input, modified);
+            Graph cached = GraphReader.parseGraph(input.toString());
+            Assertions.assertEquals(parsed.getNodes().keySet(), cached.getNodes().keySet());
+            Assertions.assertTrue(cached.hasEdge(1, 2) && cached.hasEdge(2, 3));
+
+            Files.setLastModifiedTime(input, FileTime.fromMillis(modified.toMillis() + 1000));
+            Graph changed = GraphReader.parseGraph(input.toString());
+            Assertions.assertTrue(changed.hasEdge(1, 3));
+            Assertions.assertEquals(2, cachedFiles(cache));
+        } finally {
+            GraphReader.setCache(null);
+            delete(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testGraphsOverTheLimitGetEvicted() throws IOException {
+        Path directory = Files.createTempDirectory("chromflow");
+        GraphCache cache = new GraphCache(directory.resolve("cache"), 1);
+        try {
+            Path input = directory.resolve("graph.txt");
+            Files.write(input, "1 2\n".getBytes());
+            cache.store(input, GraphReader.parseGraph(input.toString()));
+            Assertions.assertNull(cache.lookup(input));
+        } finally {
+            delete(directory.toFile());
+        }
+    }
+
+    private static int cachedFiles(GraphCache cache) {
+        return cache.getDirectory().toFile().list().length;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
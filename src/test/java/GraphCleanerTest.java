@@ -0,0 +1,89 @@
+import edu.group20.chromflow.GraphCleaner;
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.GraphBuilder;
+import edu.group20.chromflow.graph.InducedSubgraph;
+import edu.group20.chromflow.graph.SolverSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class GraphCleanerTest {
+
+    @BeforeAll
+    public static void setup() {
+        TestApp.OUTPUT_ENABLED = false;
+    }
+
+    @Test
+    public void testArticulationPointColouring() {
+        // two odd wheels (hubs 1 and 7) that share the node 2, with a path hanging off node 12
+        GraphBuilder builder = new GraphBuilder();
+        addWheel(builder, 1, new int[] { 2, 3, 4, 5, 6 });
+        addWheel(builder, 7, new int[] { 2, 8, 9, 10, 11 });
+        builder.addEdge(11, 12);
+        builder.addEdge(12, 13);
+        builder.addEdge(13, 14);
+
+        assertCleaned(builder.build().toCompactGraph(), 4);
+    }
+
+    @Test
+    public void testFullyConnectedColouring() {
+        // node 1 is connected to everything, below it node 2 is connected to a triangle and an odd cycle
+        GraphBuilder builder = new GraphBuilder();
+        addCycle(builder, new int[] { 3, 4, 5 });
+        addCycle(builder, new int[] { 6, 7, 8, 9, 10 });
+        for (int v = 3; v <= 10; v++) {
+            builder.addEdge(2, v);
+        }
+        builder.addEdge(11, 12);
+        for (int v = 2; v <= 12; v++) {
+            builder.addEdge(1, v);
+        }
+
+        assertCleaned(builder.build().toCompactGraph(), 5);
+    }
+
+    @Test
+    public void testTreeColouring() {
+        GraphBuilder builder = new GraphBuilder();
+        for (int v = 2; v <= 20; v++) {
+            builder.addEdge(v / 2, v);
+        }
+
+        assertCleaned(builder.build().toCompactGraph(), 2);
+    }
+
+    private static void addWheel(GraphBuilder builder, int hub, int[] rim) {
+        addCycle(builder, rim);
+        for (int v : rim) {
+            builder.addEdge(hub, v);
+        }
+    }
+
+    private static void addCycle(GraphBuilder builder, int[] nodes) {
+        for (int i = 0; i < nodes.length; i++) {
+            builder.addEdge(nodes[i], nodes[(i + 1) % nodes.length]);
+        }
+    }
+
+    /**
+     * Checks that the cleaner finds the chromatic number and a colouring with that many colours.
+     */
+    private static void assertCleaned(CompactGraph graph, int exact) {
+        GraphCleaner.Result result = GraphCleaner.clean(InducedSubgraph.of(graph), 0, 2, graph.size(), new SolverSettings());
+        Assertions.assertEquals(exact, result.getExact());
+
+        final int[] colouring = result.getColouring();
+        Assertions.assertNotNull(colouring);
+        for (int v = 0; v < graph.size(); v++) {
+            Assertions.assertTrue(colouring[v] >= 0 && colouring[v] < exact, String.format("Node %d", graph.getId(v)));
+            for (int i = 0; i < graph.getDegree(v); i++) {
+                final int w = graph.getNeighbour(v, i);
+                Assertions.assertNotEquals(colouring[v], colouring[w], String.format("Edge %d-%d", graph.getId(v), graph.getId(w)));
+            }
+        }
+    }
+
+}
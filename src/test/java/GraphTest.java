@@ -0,0 +1,181 @@
+import edu.group20.chromflow.graph.CompactGraph;
+import edu.group20.chromflow.graph.Graph;
+import edu.group20.chromflow.graph.GraphStructures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class GraphTest {
+
+    @Test
+    public void testStatisticsFollowChanges() {
+        Graph graph = path(5);
+
+        Assertions.assertEquals(8, graph.getEdgeCount());
+        Assertions.assertEquals(2, graph.getMaxDegree());
+        Assertions.assertEquals(2, graph.getDegreeFrequency(1));
+        Assertions.assertEquals(3, graph.getDegreeFrequency(2));
+        Assertions.assertEquals(1, graph.getMinNodeId());
+        Assertions.assertEquals(5, graph.getMaxNodeId());
+
+        graph.removeNode(1);
+        graph.removeEdge(3, 4, true);
+
+        Assertions.assertEquals(4, graph.getEdgeCount());
+        Assertions.assertEquals(1, graph.getMaxDegree());
+        Assertions.assertEquals(4, graph.getDegreeFrequency(1));
+        Assertions.assertEquals(2, graph.getMinNodeId());
+        Assertions.assertEquals(5, graph.getMaxNodeId());
+        Assertions.assertEquals(recount(graph), graph.getEdgeCount());
+    }
+
+    @Test
+    public void testRemoveNodeWithOneDirectionalEdges() {
+        Graph graph = path(3);
+        graph.addEdge(1, 3, false);
+
+        graph.removeNode(3);
+
+        Assertions.assertFalse(graph.hasEdge(1, 3));
+        Assertions.assertEquals(recount(graph), graph.getEdgeCount());
+        Assertions.assertEquals(2, graph.getMaxNodeId());
+    }
+
+    @Test
+    public void testCompactGraphKeepsEdgeDirections() {
+        Graph graph = path(40);
+        graph.addEdge(1, 30, false);
+        graph.addEdge(30, 5, false);
+
+        CompactGraph compact = graph.toCompactGraph();
+        for (int u = 0; u < compact.size(); u++) {
+            for (int v = 0; v < compact.size(); v++) {
+                Assertions.assertEquals(graph.hasEdge(compact.getId(u), compact.getId(v)), compact.hasEdge(u, v),
+                        String.format("Edge %d-%d", compact.getId(u), compact.getId(v)));
+            }
+        }
+    }
+
+    @Test
+    public void testTwoConnectivityNeedsAConnectedGraph() {
+        Graph graph = new Graph();
+        for (int i = 1; i <= 6; i++) {
+            graph.addNode(i, -1);
+        }
+        for (int i = 0; i < 3; i++) {
+            graph.addEdge(1 + i, 1 + (i + 1) % 3, true);
+            graph.addEdge(4 + i, 4 + (i + 1) % 3, true);
+        }
+
+        Assertions.assertFalse(GraphStructures.Connectivity.TwoConnectivity.check(graph));
+        Assertions.assertFalse(GraphStructures.Connectivity.TwoConnectivity.check(graph.toCompactGraph()));
+
+        graph.addEdge(1, 4, true);
+        graph.addEdge(2, 5, true);
+        Assertions.assertTrue(GraphStructures.Connectivity.TwoConnectivity.check(graph));
+        Assertions.assertTrue(GraphStructures.Connectivity.TwoConnectivity.check(graph.toCompactGraph()));
+    }
+
+    @Test
+    public void testViewsAreReadOnly() {
+        Graph graph = path(2);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> graph.getNodes().remove(1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> graph.getEdges(1).remove(2));
+    }
+
+    @Test
+    public void testCloneIsIndependent() {
+        Graph graph = path(4);
+        graph.addEdge(1, 4, false);
+        graph.getNode(2).setValue(7);
+
+        Graph clone = graph.clone();
+        Assertions.assertEquals(graph.getEdgeCount(), clone.getEdgeCount());
+        Assertions.assertEquals(graph.getMaxDegree(), clone.getMaxDegree());
+        Assertions.assertTrue(clone.hasEdge(1, 4));
+        Assertions.assertFalse(clone.hasEdge(4, 1));
+        Assertions.assertEquals(7, clone.getNode(2).getValue());
+        Assertions.assertSame(clone.getNode(3), clone.getEdges(2).get(3).getTo());
+
+        clone.removeNode(4);
+        clone.getNode(2).setValue(1);
+        Assertions.assertTrue(graph.hasNode(4));
+        Assertions.assertEquals(7, graph.getNode(2).getValue());
+        Assertions.assertEquals(recount(graph), graph.getEdgeCount());
+        Assertions.assertEquals(recount(clone), clone.getEdgeCount());
+        Assertions.assertEquals(3, clone.getMaxNodeId());
+    }
+
+    @Test
+    public void testSparseMatricesMatchDense() {
+        Graph graph = path(5);
+        graph.addEdge(1, 5, true);
+
+        double[][] adjacent = graph.toAdjacentMatrix();
+        double[][] laplacian = graph.toLaplacianMatrix();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                Assertions.assertEquals(adjacent[i][j], graph.toSparseAdjacentMatrix().doubleValue(i, j));
+                Assertions.assertEquals(laplacian[i][j], graph.toSparseLaplacianMatrix().doubleValue(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testDenseMatrixIsGuarded() {
+        Graph graph = path(Graph.MAX_DENSE_MATRIX_SIZE + 1);
+        Assertions.assertThrows(IllegalStateException.class, graph::toAdjacentMatrix);
+        Assertions.assertEquals(1, graph.toSparseAdjacentMatrix().doubleValue(0, 1));
+
+        // the largest eigenvalue of a path is 2cos(pi / (n + 1)), just below 2
+        Assertions.assertEquals(3, GraphStructures.EVBAsed.upperBoundEigenValue(graph));
+    }
+
+    @Test
+    public void testLanczosFindsExtremeEigenvalues() {
+        Graph graph = path(12);
+        graph.addEdge(3, 9, true);
+
+        double[] expected = new Jama.Matrix(graph.toLaplacianMatrix()).eig().getRealEigenvalues();
+        java.util.Arrays.sort(expected);
+        double[] actual = GraphStructures.EVBAsed.extremeEigenvalues(graph.toCompactGraph(), true);
+
+        Assertions.assertEquals(expected[0], actual[0], 1E-9);
+        Assertions.assertEquals(expected[1], actual[1], 1E-9);
+        Assertions.assertEquals(expected[expected.length - 1], actual[actual.length - 1], 1E-9);
+    }
+
+    @Test
+    public void testArticulationPointsOfLongPath() {
+        final int n = 200000;
+        Graph graph = path(n);
+        graph.addNode(n + 1, -1);
+        graph.addNode(n + 2, -1);
+        graph.addEdge(n, n + 1, true);
+        graph.addEdge(n, n + 2, true);
+        graph.addEdge(n + 1, n + 2, true);
+
+        // every inner node of the path, the triangle at the end has none
+        int[] points = GraphStructures.Connectivity.Points.getArticulationPoints(graph.toCompactGraph());
+        Assertions.assertEquals(n - 1, points.length);
+        Assertions.assertEquals(1, points[0]);
+        Assertions.assertEquals(n - 1, points[points.length - 1]);
+    }
+
+    static Graph path(int n) {
+        Graph graph = new Graph();
+        for (int i = 1; i <= n; i++) {
+            graph.addNode(i, -1);
+        }
+        for (int i = 1; i < n; i++) {
+            graph.addEdge(i, i + 1, true);
+        }
+        return graph;
+    }
+
+    private static int recount(Graph graph) {
+        return graph.getEdges().values().stream().mapToInt(Map::size).sum();
+    }
+
+}
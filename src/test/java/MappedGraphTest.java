@@ -0,0 +1,98 @@
+import edu.group20.chromflow.TestApp;
+import edu.group20.chromflow.graph.*;
+import edu.group20.chromflow.misc.GraphReader;
+import edu.group20.chromflow.misc.GraphWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedGraphTest {
+
+    @Test
+    public void testSameAsCompactGraph() throws IOException {
+        Graph graph = GraphTest.path(6);
+        graph.addNode(10, -1);
+        graph.addEdge(10, 1, true);
+        graph.addEdge(10, 3, true);
+        graph.addEdge(10, 6, true);
+        CompactGraph compact = CompactGraph.of(graph);
+
+        Path file = Files.createTempFile("chromflow", ".graph");
+        try {
+            MappedGraph.write(compact, file);
+            MappedGraph mapped = MappedGraph.open(file);
+
+            Assertions.assertEquals(compact.size(), mapped.size());
+            Assertions.assertEquals(compact.getEdgeCount(), mapped.getEdgeCount());
+            Assertions.assertEquals(compact.getMaxDegree(), mapped.getMaxDegree());
+            Assertions.assertEquals(-1, mapped.indexOf(7));
+            for (int v = 0; v < compact.size(); v++) {
+                Assertions.assertEquals(compact.getId(v), mapped.getId(v));
+                Assertions.assertEquals(v, mapped.indexOf(compact.getId(v)));
+                Assertions.assertEquals(compact.getDegree(v), mapped.getDegree(v));
+                for (int i = 0; i < compact.getDegree(v); i++) {
+                    Assertions.assertEquals(compact.getNeighbour(v, i), mapped.getNeighbour(v, i));
+                }
+                for (int u = 0; u < compact.size(); u++) {
+                    Assertions.assertEquals(compact.hasEdge(u, v), mapped.hasEdge(u, v));
+                }
+            }
+
+            Assertions.assertEquals(
+                    ChromaticNumber.upperBound(compact, UpperBoundMode.SUPERMAN),
+                    ChromaticNumber.upperBound(mapped, UpperBoundMode.SUPERMAN));
+            Assertions.assertTrue(GraphStructures.Test.isConnected(mapped));
+            Assertions.assertFalse(GraphStructures.Test.isBipartite(mapped));
+            Assertions.assertArrayEquals(
+                    GraphStructures.Connectivity.Points.getArticulationPoints(compact),
+                    GraphStructures.Connectivity.Points.getArticulationPoints(mapped));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBinaryFileKeepsColouring() throws IOException {
+        TestApp.OUTPUT_ENABLED = false;
+        Graph graph = GraphTest.path(5);
+        graph.addEdge(5, 1, false);
+        graph.getNode(2).setValue(1);
+        graph.getNode(4).setValue(3);
+
+        Path file = Files.createTempFile("chromflow", GraphReader.BINARY_EXTENSION);
+        try {
+            Assertions.assertTrue(GraphWriter.writeBinary(graph, file.toString()));
+            Graph read = GraphReader.parseGraph(file.toString());
+
+            Assertions.assertNotNull(read);
+            Assertions.assertEquals(graph.getNodes().keySet(), read.getNodes().keySet());
+            Assertions.assertEquals(graph.getEdgeCount(), read.getEdgeCount());
+            Assertions.assertTrue(read.hasEdge(5, 1));
+            Assertions.assertFalse(read.hasEdge(1, 5));
+            Assertions.assertEquals(-1, read.getNode(1).getValue());
+            Assertions.assertEquals(1, read.getNode(2).getValue());
+            Assertions.assertEquals(3, read.getNode(4).getValue());
+
+            // removing the node has to clean up the edge that only points to it
+            read.removeNode(1);
+            Assertions.assertFalse(read.hasEdge(5, 1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = Files.createTempFile("chromflow", ".graph");
+        try {
+            Files.write(file, "1 2\n2 3\n".getBytes());
+            Assertions.assertThrows(IOException.class, () -> MappedGraph.open(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}